@@ -0,0 +1,104 @@
+package benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import puzzle.BinaryFormat;
+import puzzle.Puzzle;
+import puzzle.PuzzleFormatException;
+import puzzle.PuzzleLoader;
+
+/**
+ * Benchmarks for loading the bundled puzzle files.
+ *
+ * @author jessmann
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoaderBenchmark {
+
+    @Param({"2x10", "4x4", "5x5", "8x8", "10x10", "18x20"})
+    public String puzzle;
+
+    private ByteBuffer contents;
+    private ByteBuffer binaryContents;
+
+    /**
+     * Reads the puzzle file and converts it to the binary format, so the
+     * parse benchmarks only measure the parsing.
+     *
+     * @throws IOException If the file cannot be read.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        this.contents = ByteBuffer.wrap(Files.readAllBytes(Paths.get("puzzles/" + this.puzzle + ".txt")));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryFormat.writePuzzle(PuzzleLoader.parse(this.contents), Channels.newChannel(bytes));
+        this.binaryContents = ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    /**
+     * Loads a puzzle from its text file.
+     *
+     * @return The loaded puzzle.
+     */
+    @Benchmark
+    public Puzzle loadPuzzle() {
+        return Puzzle.loadPuzzle("puzzles/" + this.puzzle + ".txt");
+    }
+
+    /**
+     * Loads a puzzle and builds its piece index, as the solver does before
+     * the search.
+     *
+     * @return The loaded puzzle.
+     */
+    @Benchmark
+    public Puzzle loadPuzzleAndIndex() {
+        Puzzle loaded = Puzzle.loadPuzzle("puzzles/" + this.puzzle + ".txt");
+        loaded.getIndex();
+        return loaded;
+    }
+
+    /**
+     * Parses a puzzle already read into memory.
+     *
+     * @return The parsed puzzle.
+     * @throws PuzzleFormatException If the puzzle is not valid.
+     */
+    @Benchmark
+    public Puzzle parse() throws PuzzleFormatException {
+        return PuzzleLoader.parse(this.contents);
+    }
+
+    /**
+     * Parses a binary puzzle already read into memory.
+     *
+     * @return The parsed puzzle.
+     * @throws PuzzleFormatException If the puzzle is not valid.
+     */
+    @Benchmark
+    public Puzzle parseBinary() throws PuzzleFormatException {
+        return BinaryFormat.parsePuzzle(this.binaryContents);
+    }
+
+}
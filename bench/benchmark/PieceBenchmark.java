@@ -0,0 +1,75 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import puzzle.PuzzlePiece;
+
+/**
+ * Benchmarks for rotating a puzzle piece.
+ *
+ * @author jessmann
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PieceBenchmark {
+
+    private PuzzlePiece piece;
+    private int rotation;
+
+    /**
+     * Creates a corner piece that needs rotating to fit the top left corner.
+     */
+    @Setup
+    public void setUp() {
+        this.piece = new PuzzlePiece(1, new int[]{5, 6, 0, 0});
+    }
+
+    /**
+     * Rotates the piece 90º.
+     *
+     * @return The rotated piece.
+     */
+    @Benchmark
+    public PuzzlePiece rotate() {
+        this.piece.rotate();
+        return this.piece;
+    }
+
+    /**
+     * Rotates the piece to the top left corner and back to a corner it does
+     * not fit, so every call rotates.
+     *
+     * @return The rotated piece.
+     */
+    @Benchmark
+    public PuzzlePiece rotateToCorner() {
+        this.piece.rotateToCorner("top-left");
+        this.piece.rotateToCorner("bottom-right");
+        return this.piece;
+    }
+
+    /**
+     * Reads a face of a rotated orientation, as the solver does.
+     *
+     * @return The value of the face.
+     */
+    @Benchmark
+    public int getFace() {
+        this.rotation = (this.rotation + 1) & 3;
+        return this.piece.getFace(this.rotation, 2);
+    }
+
+}
@@ -0,0 +1,163 @@
+package benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import puzzle.Board;
+import puzzle.PieceClasses;
+import puzzle.PieceIndex;
+import puzzle.Puzzle;
+import puzzle.PuzzleGenerator;
+import puzzle.PuzzlePiece;
+import puzzle.PuzzleSolver;
+import puzzle.SolvingStrategy;
+
+/**
+ * Benchmarks for the solver, over the bundled puzzles and generated puzzles
+ * of growing size.
+ *
+ * @author jessmann
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark {
+
+    /**
+     * A bundled puzzle file name, or random-WxH for a generated puzzle, with
+     * as many edge colours as its longest side, or random-WxH-C for one with C
+     * edge colours.
+     */
+    @Param({"4x4", "8x8", "10x10", "18x20", "random-6x6", "random-12x12", "random-12x12-6", "random-20x20"})
+    public String puzzle;
+
+    @Param({"ROW_MAJOR", "FRAME_FIRST", "MOST_CONSTRAINED"})
+    public SolvingStrategy strategy;
+
+    private Puzzle loaded;
+    private Board board;
+    private int cell;
+
+    /**
+     * Loads or generates the puzzle and builds its index, so the benchmarks
+     * only measure the search.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (this.puzzle.startsWith("random-")) {
+            String[] spec = this.puzzle.substring("random-".length()).split("-");
+            String[] dimensions = spec[0].split("x");
+            int cols = Integer.parseInt(dimensions[0]);
+            int rows = Integer.parseInt(dimensions[1]);
+            int colours = (spec.length > 1) ? Integer.parseInt(spec[1]) : Math.max(cols, rows);
+            this.loaded = new PuzzleGenerator(42).generate(cols, rows, colours);
+        } else {
+            this.loaded = Puzzle.loadPuzzle("puzzles/" + this.puzzle + ".txt");
+        }
+        this.loaded.getIndex();
+        this.board = boardWithHole(this.loaded);
+        this.cell = (this.loaded.getRows() / 2) * this.loaded.getCols() + this.loaded.getCols() / 2;
+    }
+
+    /**
+     * Solves the puzzle, finding every solution.
+     *
+     * @param blackhole Consumes the solutions.
+     * @return The solver.
+     */
+    @Benchmark
+    public PuzzleSolver solve(Blackhole blackhole) {
+        PuzzleSolver solver = new PuzzleSolver(this.loaded);
+        solver.setStrategy(this.strategy);
+        solver.setSolutionListener(blackhole::consume);
+        solver.solve();
+        return solver;
+    }
+
+    /**
+     * Solves the puzzle, stopping at the first solution.
+     *
+     * @param blackhole Consumes the solution.
+     * @return The solver.
+     */
+    @Benchmark
+    public PuzzleSolver solveFirst(Blackhole blackhole) {
+        PuzzleSolver solver = new PuzzleSolver(this.loaded);
+        solver.setStrategy(this.strategy);
+        solver.setSolutionLimit(1);
+        solver.setSolutionListener(blackhole::consume);
+        solver.solve();
+        return solver;
+    }
+
+    /**
+     * Looks up the candidates of a cell in the middle of an otherwise solved
+     * board and tries every one of them, as the search does at every node.
+     *
+     * @return The number of candidates that fit.
+     */
+    @Benchmark
+    public int tryPiece() {
+        int fits = 0;
+        for (int candidate : this.board.getCandidates(this.cell)) {
+            if (this.board.tryPiece(this.cell, candidate)) {
+                fits++;
+            }
+        }
+        return fits;
+    }
+
+    /**
+     * Fills a board with the first solution of the puzzle, except the cell in
+     * the middle.
+     */
+    private static Board boardWithHole(Puzzle puzzle) {
+        PuzzlePiece[][][] first = new PuzzlePiece[1][][];
+        PuzzleSolver solver = new PuzzleSolver(puzzle);
+        solver.setSolutionLimit(1);
+        solver.setSolutionListener(solution -> first[0] = solution);
+        solver.solve();
+
+        Board board = new Board(puzzle);
+        if (first[0] == null) {
+            return board;
+        }
+
+        PieceClasses classes = puzzle.getClasses();
+        int rows = puzzle.getRows();
+        int cols = puzzle.getCols();
+        int hole = (rows / 2) * cols + cols / 2;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                PuzzlePiece placed = first[0][row][col];
+                int piece = placed.getId() - 1;
+                for (int rotation = 0; rotation < 4; rotation++) {
+                    if (row * cols + col != hole
+                            && Arrays.equals(puzzle.getPieces()[piece].getFaces(rotation), placed.getFaces())) {
+                        // The board holds the first piece of the class, turned to match
+                        int representative = classes.getRepresentative(classes.getClassOf(piece));
+                        board.place(row * cols + col, PieceIndex.candidate(representative, (rotation + classes.getRotation(piece)) & 3));
+                        break;
+                    }
+                }
+            }
+        }
+        return board;
+    }
+
+}
@@ -0,0 +1,202 @@
+package puzzle;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solves many puzzles in one process, several at a time, and writes a result
+ * line per puzzle as soon as it is solved. Every puzzle is solved on a single
+ * thread; the puzzles are spread over a fixed number of jobs.
+ *
+ * The results are tab-separated: the file, the number of solutions, the
+ * time in milliseconds and the status, which is complete, stopped, or error
+ * followed by the reason.
+ *
+ * @author jessmann
+ */
+public class BatchSolver {
+
+    private final Writer results;
+    private int jobs = Runtime.getRuntime().availableProcessors();
+    private int solutionLimit;
+    private long timeout;
+    private SolvingStrategy strategy = SolvingStrategy.ROW_MAJOR;
+    private volatile IOException writeError;
+
+    /**
+     * Constructs a BatchSolver.
+     *
+     * @param results The writer the results are written to.
+     */
+    public BatchSolver(Writer results) {
+        this.results = results;
+    }
+
+    /**
+     * Gets the number of puzzles solved at a time.
+     *
+     * @return The number of jobs.
+     */
+    public int getJobs() {
+        return this.jobs;
+    }
+
+    /**
+     * Sets the number of puzzles solved at a time.
+     *
+     * @param jobs The number of jobs.
+     */
+    public void setJobs(int jobs) {
+        if (jobs < 1) {
+            throw new IllegalArgumentException("The number of jobs must be positive.");
+        }
+        this.jobs = jobs;
+    }
+
+    /**
+     * Sets the maximum number of solutions to find for every puzzle.
+     *
+     * @param solutionLimit The solution limit, or 0 for no limit.
+     */
+    public void setSolutionLimit(int solutionLimit) {
+        if (solutionLimit < 0) {
+            throw new IllegalArgumentException("The solution limit must not be negative.");
+        }
+        this.solutionLimit = solutionLimit;
+    }
+
+    /**
+     * Sets the time after which the search of every puzzle is cancelled.
+     *
+     * @param timeout The timeout in milliseconds, or 0 for no timeout.
+     */
+    public void setTimeout(long timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("The timeout must not be negative.");
+        }
+        this.timeout = timeout;
+    }
+
+    /**
+     * Sets the order in which the cells of every puzzle are filled.
+     *
+     * @param strategy The solving strategy.
+     */
+    public void setStrategy(SolvingStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    /**
+     * Lists the puzzles of a batch: the .txt and .pzl files of a directory,
+     * sorted by name, or the files listed in a manifest, one per line. Paths
+     * in a manifest are relative to its directory, and blank lines and lines
+     * starting with # are ignored.
+     *
+     * @param source The directory or the manifest.
+     * @return The puzzle files.
+     * @throws IOException If the directory or the manifest cannot be read.
+     */
+    public static List<Path> listPuzzles(Path source) throws IOException {
+        List<Path> puzzles = new ArrayList<>();
+        if (Files.isDirectory(source)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(source, "*.{txt,pzl}")) {
+                for (Path file : files) {
+                    if (Files.isRegularFile(file)) {
+                        puzzles.add(file);
+                    }
+                }
+            }
+            Collections.sort(puzzles);
+        } else {
+            Path dir = source.toAbsolutePath().getParent();
+            for (String line : Files.readAllLines(source, StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    puzzles.add(dir.resolve(line));
+                }
+            }
+        }
+        return puzzles;
+    }
+
+    /**
+     * Solves the puzzles and writes their results in the order they finish.
+     * Only a few puzzles are queued ahead of the jobs, so a long list is not
+     * loaded into memory at once.
+     *
+     * @param puzzles The puzzle files.
+     * @throws IOException If a result cannot be written. The remaining
+     * puzzles are still solved.
+     */
+    public void solve(Iterable<Path> puzzles) throws IOException {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(this.jobs, this.jobs, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(this.jobs), new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            for (Path puzzle : puzzles) {
+                executor.execute(() -> writeResult(solve(puzzle)));
+            }
+        } finally {
+            executor.shutdown();
+            try {
+                while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    // Wait for the last puzzles
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (this.writeError != null) {
+            throw this.writeError;
+        }
+    }
+
+    /**
+     * Solves a puzzle and formats its result line.
+     */
+    private String solve(Path file) {
+        long start = System.nanoTime();
+        int[] count = new int[1];
+        String status;
+        try {
+            PuzzleSolver solver = new PuzzleSolver(PuzzleLoader.load(file));
+            solver.setSolutionLimit(this.solutionLimit);
+            solver.setTimeout(this.timeout);
+            solver.setStrategy(this.strategy);
+            solver.setSolutionListener(solution -> count[0]++);
+            solver.solve();
+            status = solver.isStopped() ? "stopped" : "complete";
+        } catch (IOException | RuntimeException | Error e) {
+            // Even running out of memory on one puzzle leaves a line for it,
+            // and the worker goes on with the next puzzles
+            status = "error " + e;
+        }
+        long millis = (System.nanoTime() - start) / 1000000;
+        return file + "\t" + count[0] + "\t" + millis + "\t" + status + "\n";
+    }
+
+    /**
+     * Writes a result line, so it can be read while the batch goes on.
+     */
+    private void writeResult(String result) {
+        try {
+            synchronized (this.results) {
+                this.results.write(result);
+                this.results.flush();
+            }
+        } catch (IOException e) {
+            this.writeError = e;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package puzzle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The binary file formats for puzzles and solutions. Every file starts with a
+ * magic number and a version, and all numbers are big-endian.
+ *
+ * A puzzle file holds the magic number PZL1, the version, the width in bytes
+ * of a face (1, 2 or 4, the smallest that fits every face), the number of
+ * columns and rows as ints, and then the four faces of every piece.
+ *
+ * A solution file holds the magic number PZS1, the version, the width in
+ * bytes of a cell (2 or 4), the number of columns and rows as ints, and then
+ * the solutions one after another. Every cell of a solution holds the index
+ * of its piece in the puzzle and its rotation: index * 4 + rotation.
+ *
+ * @author jessmann
+ */
+public class BinaryFormat {
+
+    /**
+     * Magic number of the puzzle files: "PZL1".
+     */
+    public static final int PUZZLE_MAGIC = 0x505A4C31;
+    /**
+     * Magic number of the solution files: "PZS1".
+     */
+    public static final int SOLUTION_MAGIC = 0x505A5331;
+    /**
+     * Magic number of the checkpoint files of the solver: "PZC2".
+     */
+    public static final int CHECKPOINT_MAGIC = 0x505A4332;
+    /**
+     * Version of the formats written.
+     */
+    public static final int VERSION = 1;
+    /**
+     * Size of the header of every format.
+     */
+    static final int HEADER_SIZE = 14;
+
+    private BinaryFormat() {
+    }
+
+    /**
+     * Checks if a buffer starts with the magic number of a puzzle file. The
+     * position of the buffer is not changed.
+     *
+     * @param buffer The buffer.
+     * @return True if the buffer holds a binary puzzle, false otherwise.
+     */
+    public static boolean isBinaryPuzzle(ByteBuffer buffer) {
+        return buffer.remaining() >= 4 && buffer.getInt(buffer.position()) == PUZZLE_MAGIC;
+    }
+
+    /**
+     * Parses a binary puzzle from the remaining bytes of a buffer. The
+     * position of the buffer is not changed.
+     *
+     * @param buffer The buffer.
+     * @return The parsed puzzle.
+     * @throws PuzzleFormatException If the buffer does not hold a valid
+     * puzzle.
+     */
+    public static Puzzle parsePuzzle(ByteBuffer buffer) throws PuzzleFormatException {
+        ByteBuffer in = buffer.duplicate();
+        int width = readHeader(in, PUZZLE_MAGIC);
+        if (width != 1 && width != 2 && width != 4) {
+            throw new PuzzleFormatException("Invalid face width: " + width + ".");
+        }
+        int cols = in.getInt();
+        int rows = in.getInt();
+        int numPieces = checkDimensions(cols, rows);
+        if ((long) numPieces * 4 * width != in.remaining()) {
+            throw new PuzzleFormatException("The number of pieces does not fit puzzle dimensions.");
+        }
+
+        PuzzlePiece[] pieces = new PuzzlePiece[numPieces];
+        for (int i = 0; i < numPieces; i++) {
+            int[] faces = new int[4];
+            for (int face = 0; face < 4; face++) {
+                faces[face] = switch (width) {
+                    case 1 ->
+                        in.get() & 0xFF;
+                    case 2 ->
+                        in.getShort() & 0xFFFF;
+                    default ->
+                        in.getInt();
+                };
+            }
+            pieces[i] = new PuzzlePiece(i + 1, faces);
+        }
+        return new Puzzle(cols, rows, pieces);
+    }
+
+    /**
+     * Writes a puzzle in the binary format.
+     *
+     * @param puzzle The puzzle.
+     * @param channel The channel the puzzle is written to.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void writePuzzle(Puzzle puzzle, WritableByteChannel channel) throws IOException {
+        PuzzlePiece[] pieces = puzzle.getPieces();
+        int max = 0;
+        boolean negative = false;
+        for (PuzzlePiece piece : pieces) {
+            for (int face : piece.getFaces()) {
+                max = Math.max(max, face);
+                negative |= face < 0;
+            }
+        }
+        int width = negative || max > 0xFFFF ? 4 : max > 0xFF ? 2 : 1;
+
+        ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + pieces.length * 4 * width);
+        writeHeader(out, PUZZLE_MAGIC, width, puzzle.getCols(), puzzle.getRows());
+        for (PuzzlePiece piece : pieces) {
+            for (int face : piece.getFaces()) {
+                switch (width) {
+                    case 1 ->
+                        out.put((byte) face);
+                    case 2 ->
+                        out.putShort((short) face);
+                    default ->
+                        out.putInt(face);
+                }
+            }
+        }
+        out.flip();
+        writeFully(channel, out);
+    }
+
+    /**
+     * Saves a puzzle to a file in the binary format.
+     *
+     * @param puzzle The puzzle.
+     * @param path The path of the file.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void savePuzzle(Puzzle puzzle, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writePuzzle(puzzle, channel);
+        }
+    }
+
+    /**
+     * Gets the width in bytes of a cell of the solutions of a puzzle.
+     */
+    static int cellWidth(Puzzle puzzle) {
+        return ((long) puzzle.getPieces().length << 2) <= 0x10000 ? 2 : 4;
+    }
+
+    /**
+     * Writes the header of a file.
+     */
+    static void writeHeader(ByteBuffer out, int magic, int width, int cols, int rows) {
+        out.putInt(magic).put((byte) VERSION).put((byte) width).putInt(cols).putInt(rows);
+    }
+
+    /**
+     * Reads and checks the magic number and version of a file.
+     *
+     * @return The width of the values in the file.
+     */
+    static int readHeader(ByteBuffer in, int magic) throws PuzzleFormatException {
+        if (in.remaining() < HEADER_SIZE || in.getInt() != magic) {
+            String kind = switch (magic) {
+                case PUZZLE_MAGIC ->
+                    "binary puzzle";
+                case SOLUTION_MAGIC ->
+                    "binary solution";
+                default ->
+                    "checkpoint";
+            };
+            throw new PuzzleFormatException("Not a " + kind + " file.");
+        }
+        int version = in.get();
+        if (version != VERSION) {
+            throw new PuzzleFormatException("Unsupported version: " + version + ".");
+        }
+        return in.get();
+    }
+
+    /**
+     * Checks the dimensions of a puzzle.
+     *
+     * @return The number of pieces.
+     */
+    static int checkDimensions(int cols, int rows) throws PuzzleFormatException {
+        if (cols < 1 || rows < 1) {
+            throw new PuzzleFormatException("The dimensions must be positive.");
+        }
+        try {
+            return Math.multiplyExact(cols, rows);
+        } catch (ArithmeticException e) {
+            throw new PuzzleFormatException("The dimensions are too large.");
+        }
+    }
+
+    /**
+     * Writes the remaining bytes of a buffer to a channel.
+     */
+    static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
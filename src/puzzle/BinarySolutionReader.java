@@ -0,0 +1,113 @@
+package puzzle;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads the solutions of a puzzle from a channel in the binary solution
+ * format of BinaryFormat, one at a time.
+ *
+ * @author jessmann
+ */
+public class BinarySolutionReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Puzzle puzzle;
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final int width;
+    private final int solutionSize;
+    private boolean endOfFile;
+
+    /**
+     * Constructor for BinarySolutionReader. The header is read and checked
+     * against the puzzle at once.
+     *
+     * @param puzzle The puzzle whose solutions are read.
+     * @param channel The channel the solutions are read from.
+     * @throws PuzzleFormatException If the header is not valid or does not
+     * match the puzzle.
+     * @throws IOException If an I/O error occurs.
+     */
+    public BinarySolutionReader(Puzzle puzzle, ReadableByteChannel channel) throws IOException {
+        this.puzzle = puzzle;
+        this.channel = channel;
+        this.width = BinaryFormat.cellWidth(puzzle);
+        this.solutionSize = puzzle.getPieces().length * this.width;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, this.solutionSize));
+        this.buffer.flip();
+
+        fill(BinaryFormat.HEADER_SIZE);
+        int fileWidth = BinaryFormat.readHeader(this.buffer, BinaryFormat.SOLUTION_MAGIC);
+        int cols = this.buffer.getInt();
+        int rows = this.buffer.getInt();
+        if (cols != puzzle.getCols() || rows != puzzle.getRows() || fileWidth != this.width) {
+            throw new PuzzleFormatException("The solutions are not of a " + puzzle.getCols() + "x" + puzzle.getRows()
+                    + " puzzle with " + puzzle.getPieces().length + " pieces.");
+        }
+    }
+
+    /**
+     * Reads the next solution.
+     *
+     * @return The pieces of the solution, by row and column, or null if there
+     * are no more solutions.
+     * @throws PuzzleFormatException If the file ends in the middle of a
+     * solution or a cell does not hold a piece of the puzzle.
+     * @throws IOException If an I/O error occurs.
+     */
+    public PuzzlePiece[][] next() throws IOException {
+        fill(this.solutionSize);
+        if (!this.buffer.hasRemaining()) {
+            return null;
+        }
+        if (this.buffer.remaining() < this.solutionSize) {
+            throw new PuzzleFormatException("Truncated solution.");
+        }
+
+        PuzzlePiece[] pieces = this.puzzle.getPieces();
+        PuzzlePiece[][] solution = new PuzzlePiece[this.puzzle.getRows()][this.puzzle.getCols()];
+        for (PuzzlePiece[] row : solution) {
+            for (int col = 0; col < row.length; col++) {
+                int cell = (this.width == 2) ? this.buffer.getShort() & 0xFFFF : this.buffer.getInt();
+                int piece = PieceIndex.pieceOf(cell);
+                if (piece < 0 || piece >= pieces.length) {
+                    throw new PuzzleFormatException("Invalid piece: " + (piece + 1) + ".");
+                }
+                row[col] = new PuzzlePiece(piece + 1, pieces[piece].getFaces(PieceIndex.rotationOf(cell)));
+            }
+        }
+        return solution;
+    }
+
+    /**
+     * Closes the channel.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * Reads from the channel until the buffer holds at least the given number
+     * of bytes or the channel ends.
+     */
+    private void fill(int size) throws IOException {
+        if (this.buffer.remaining() >= size || this.endOfFile) {
+            return;
+        }
+        this.buffer.compact();
+        while (this.buffer.position() < size) {
+            if (this.channel.read(this.buffer) < 0) {
+                this.endOfFile = true;
+                break;
+            }
+        }
+        this.buffer.flip();
+    }
+}
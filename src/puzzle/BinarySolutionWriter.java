@@ -0,0 +1,108 @@
+package puzzle;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * A solution listener that writes the solutions to a channel in the binary
+ * solution format of BinaryFormat. The solutions are buffered, and the
+ * buffer is written when it is full and when the writer is closed.
+ *
+ * @author jessmann
+ */
+public class BinarySolutionWriter implements SolutionListener, Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Puzzle puzzle;
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final int width;
+
+    /**
+     * Constructor for BinarySolutionWriter. The header is written at once.
+     *
+     * @param puzzle The puzzle whose solutions are written.
+     * @param channel The channel the solutions are written to.
+     * @throws IOException If an I/O error occurs.
+     */
+    public BinarySolutionWriter(Puzzle puzzle, WritableByteChannel channel) throws IOException {
+        this.puzzle = puzzle;
+        this.channel = channel;
+        this.width = BinaryFormat.cellWidth(puzzle);
+        int solutionSize = puzzle.getPieces().length * this.width;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, solutionSize));
+        BinaryFormat.writeHeader(this.buffer, BinaryFormat.SOLUTION_MAGIC, this.width, puzzle.getCols(), puzzle.getRows());
+    }
+
+    /**
+     * Writes a solution. The rotation of every piece is found by comparing
+     * its faces with the piece of the puzzle that has the same id.
+     *
+     * @param solution The pieces of the solution, by row and column.
+     */
+    @Override
+    public void onSolution(PuzzlePiece[][] solution) {
+        try {
+            if (this.buffer.remaining() < this.puzzle.getPieces().length * this.width) {
+                flush();
+            }
+            for (PuzzlePiece[] row : solution) {
+                for (PuzzlePiece placed : row) {
+                    int piece = placed.getId() - 1;
+                    int cell = PieceIndex.candidate(piece, rotationOf(piece, placed));
+                    if (this.width == 2) {
+                        this.buffer.putShort((short) cell);
+                    } else {
+                        this.buffer.putInt(cell);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the buffered solutions to the channel.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    public void flush() throws IOException {
+        this.buffer.flip();
+        BinaryFormat.writeFully(this.channel, this.buffer);
+        this.buffer.clear();
+    }
+
+    /**
+     * Writes the buffered solutions and closes the channel.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Finds the rotation of a piece of the puzzle that gives the faces of a
+     * placed piece.
+     */
+    private int rotationOf(int piece, PuzzlePiece placed) {
+        PuzzlePiece original = this.puzzle.getPieces()[piece];
+        for (int rotation = 0; rotation < 4; rotation++) {
+            if (Arrays.equals(original.getFaces(rotation), placed.getFaces())) {
+                return rotation;
+            }
+        }
+        throw new IllegalArgumentException("Piece " + placed.getId() + " is not a rotation of the puzzle piece.");
+    }
+}
@@ -0,0 +1,330 @@
+package puzzle;
+
+import java.util.Arrays;
+
+/**
+ * The partial solution of a puzzle during the search: the piece and rotation
+ * placed in every cell and the set of used pieces. Cells are numbered row by
+ * row, so cell = row * cols + col.
+ *
+ * The state is kept in flat primitive arrays: the packed candidate placed in
+ * every cell, whose faces are read from the face table of the piece index.
+ * Pieces are only created when a solution is copied out of the board.
+ *
+ * @author jessmann
+ */
+public class Board {
+
+    /**
+     * Value of an empty cell.
+     */
+    private static final int EMPTY = -1;
+
+    private final Puzzle puzzle;
+    private final PieceIndex index;
+    private final int[] faces;
+    private final int rows;
+    private final int cols;
+    private final int[] cells;
+    private final PieceClasses classes;
+    private final int[] remaining;
+
+    /**
+     * Constructs an empty board for the specified puzzle.
+     *
+     * @param puzzle The puzzle to be solved.
+     */
+    public Board(Puzzle puzzle) {
+        this.puzzle = puzzle;
+        this.index = puzzle.getIndex();
+        this.faces = this.index.getFaceTable();
+        this.rows = puzzle.getRows();
+        this.cols = puzzle.getCols();
+        this.cells = new int[this.rows * this.cols];
+        Arrays.fill(this.cells, EMPTY);
+        this.classes = puzzle.getClasses();
+        this.remaining = new int[this.classes.getClassCount()];
+        for (int cls = 0; cls < this.remaining.length; cls++) {
+            this.remaining[cls] = this.classes.getSize(cls);
+        }
+    }
+
+    /**
+     * Constructs a copy of a board.
+     */
+    private Board(Board board) {
+        this.puzzle = board.puzzle;
+        this.index = board.index;
+        this.faces = board.faces;
+        this.rows = board.rows;
+        this.cols = board.cols;
+        this.cells = board.cells.clone();
+        this.classes = board.classes;
+        this.remaining = board.remaining.clone();
+    }
+
+    /**
+     * Returns a copy of the board that can be modified independently.
+     *
+     * @return The copy of the board.
+     */
+    public Board copy() {
+        return new Board(this);
+    }
+
+    /**
+     * Gets the number of rows of the board.
+     *
+     * @return The number of rows.
+     */
+    public int getRows() {
+        return this.rows;
+    }
+
+    /**
+     * Gets the number of columns of the board.
+     *
+     * @return The number of columns.
+     */
+    public int getCols() {
+        return this.cols;
+    }
+
+    /**
+     * Checks if a cell is empty.
+     *
+     * @param cell The cell.
+     * @return True if no piece has been placed in the cell, false otherwise.
+     */
+    public boolean isEmpty(int cell) {
+        return this.cells[cell] == EMPTY;
+    }
+
+    /**
+     * Gets the candidate placed in a cell.
+     *
+     * @param cell The cell.
+     * @return The packed candidate, or -1 if the cell is empty.
+     */
+    public int getCandidate(int cell) {
+        return this.cells[cell];
+    }
+
+    /**
+     * Checks if every piece of the class of a piece has been placed.
+     *
+     * @param piece The index of the piece in the puzzle.
+     * @return True if no piece of the class is left, false otherwise.
+     */
+    public boolean isUsed(int piece) {
+        return this.remaining[this.classes.getClassOf(piece)] == 0;
+    }
+
+    /**
+     * Places a candidate in an empty cell. It takes a piece of the class of
+     * the candidate, which is only chosen when the solution is copied.
+     *
+     * @param cell The cell.
+     * @param candidate The packed candidate.
+     */
+    public void place(int cell, int candidate) {
+        this.remaining[this.classes.getClassOf(PieceIndex.pieceOf(candidate))]--;
+        this.cells[cell] = candidate;
+    }
+
+    /**
+     * Removes the candidate placed in a cell.
+     *
+     * @param cell The cell.
+     * @param candidate The packed candidate placed in the cell.
+     */
+    public void remove(int cell, int candidate) {
+        this.remaining[this.classes.getClassOf(PieceIndex.pieceOf(candidate))]++;
+        this.cells[cell] = EMPTY;
+    }
+
+    /**
+     * Gets the candidates whose faces fit the known sides of a cell. A side is
+     * known if it is a border or its neighbour has been placed. The lookup
+     * uses two adjacent known sides when there are, so candidates may still
+     * not fit the other known sides: check them with tryPiece.
+     *
+     * @param cell The cell.
+     * @return The packed candidates for the cell. The array is shared and must
+     * not be modified.
+     */
+    public int[] getCandidates(int cell) {
+        int row = cell / this.cols;
+        int col = cell % this.cols;
+        int borders = PieceIndex.borderClass(row, col, this.rows, this.cols);
+
+        // Pick the first pair of adjacent sides that are both known
+        int firstKnown = -1;
+        for (int side = 0; side < 4; side++) {
+            if (isKnown(cell, side, borders)) {
+                int nextSide = (side + 1) & 3;
+                if (isKnown(cell, nextSide, borders)) {
+                    return this.index.getCandidates(borders, side,
+                            requiredFace(cell, side, borders), requiredFace(cell, nextSide, borders));
+                }
+                if (firstKnown < 0 && (borders & (1 << side)) == 0) {
+                    firstKnown = side;
+                }
+            }
+        }
+
+        if (firstKnown >= 0) {
+            return this.index.getSideCandidates(borders, firstKnown, requiredFace(cell, firstKnown, borders));
+        }
+        return this.index.getCandidates(borders);
+    }
+
+    /**
+     * Attempts to place a candidate in a cell, checking its faces against
+     * every placed neighbour. The border class is not checked, as every
+     * candidate from getCandidates already matches it.
+     *
+     * @param cell The cell.
+     * @param candidate The packed candidate.
+     * @return True if the candidate can be placed, false otherwise.
+     */
+    public boolean tryPiece(int cell, int candidate) {
+        int col = cell % this.cols;
+        int[] cells = this.cells;
+        int[] faces = this.faces;
+        int base = candidate << 2;
+
+        int left = (col > 0) ? cells[cell - 1] : EMPTY;
+        if (left != EMPTY && faces[(left << 2) | 2] != faces[base]) {
+            return false;
+        }
+        int top = (cell >= this.cols) ? cells[cell - this.cols] : EMPTY;
+        if (top != EMPTY && faces[(top << 2) | 3] != faces[base | 1]) {
+            return false;
+        }
+        int right = (col < this.cols - 1) ? cells[cell + 1] : EMPTY;
+        if (right != EMPTY && faces[right << 2] != faces[base | 2]) {
+            return false;
+        }
+        int bottom = (cell < cells.length - this.cols) ? cells[cell + this.cols] : EMPTY;
+        return bottom == EMPTY || faces[(bottom << 2) | 1] == faces[base | 3];
+    }
+
+    /**
+     * Counts the unused candidates that can be placed in a cell.
+     *
+     * @param cell The cell.
+     * @param limit The count at which to stop counting.
+     * @return The number of candidates, up to the limit.
+     */
+    public int countCandidates(int cell, int limit) {
+        int count = 0;
+        for (int candidate : getCandidates(cell)) {
+            if (!isUsed(PieceIndex.pieceOf(candidate)) && tryPiece(cell, candidate) && ++count >= limit) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks if a cell is empty and next to a placed piece.
+     *
+     * @param cell The cell.
+     * @return True if the cell is on the frontier of the placed pieces, false
+     * otherwise.
+     */
+    public boolean isFrontier(int cell) {
+        if (this.cells[cell] != EMPTY) {
+            return false;
+        }
+        int col = cell % this.cols;
+        return (col > 0 && this.cells[cell - 1] != EMPTY)
+                || (cell >= this.cols && this.cells[cell - this.cols] != EMPTY)
+                || (col < this.cols - 1 && this.cells[cell + 1] != EMPTY)
+                || (cell < this.cells.length - this.cols && this.cells[cell + this.cols] != EMPTY);
+    }
+
+    /**
+     * Copies the placed pieces. Identical pieces are given in increasing id
+     * order, row by row. The pieces are copied in their orientation, so the
+     * shared pieces are never rotated.
+     *
+     * @return The pieces of the solution, by row and column.
+     */
+    public PuzzlePiece[][] toSolution() {
+        int[] pieces = new int[this.cells.length];
+        int[] taken = new int[this.remaining.length];
+        for (int cell = 0; cell < this.cells.length; cell++) {
+            if (this.cells[cell] != EMPTY) {
+                int cls = this.classes.getClassOf(PieceIndex.pieceOf(this.cells[cell]));
+                pieces[cell] = this.classes.getMembers(cls)[taken[cls]++];
+            }
+        }
+        return toSolution(pieces);
+    }
+
+    /**
+     * Copies the placed pieces, choosing the piece of every cell among the
+     * pieces of the class placed there. The pieces are copied in their
+     * orientation, so the shared pieces are never rotated.
+     *
+     * @param pieces The index of the piece of every cell, which must be in
+     * the class placed in the cell.
+     * @return The pieces of the solution, by row and column.
+     */
+    public PuzzlePiece[][] toSolution(int[] pieces) {
+        PuzzlePiece[] puzzlePieces = this.puzzle.getPieces();
+        PuzzlePiece[][] newSolution = new PuzzlePiece[this.rows][this.cols];
+
+        for (int i = 0; i < this.rows; i++) {
+            for (int j = 0; j < this.cols; j++) {
+                int candidate = this.cells[i * this.cols + j];
+                if (candidate != EMPTY) {
+                    // Turn the piece as the first piece of its class is turned in the cell
+                    int piece = pieces[i * this.cols + j];
+                    int rotation = (PieceIndex.rotationOf(candidate) - this.classes.getRotation(piece)) & 3;
+                    newSolution[i][j] = new PuzzlePiece(puzzlePieces[piece].getId(), puzzlePieces[piece].getFaces(rotation));
+                }
+            }
+        }
+
+        return newSolution;
+    }
+
+    /**
+     * Checks if the face required on a side of a cell is known, because the
+     * side is a border or its neighbour has been placed.
+     */
+    private boolean isKnown(int cell, int side, int borders) {
+        return (borders & (1 << side)) != 0 || this.cells[neighbour(cell, side)] != EMPTY;
+    }
+
+    /**
+     * Gets the face required on a known side of a cell: 0 for a border, or the
+     * facing side of the placed neighbour.
+     */
+    private int requiredFace(int cell, int side, int borders) {
+        if ((borders & (1 << side)) != 0) {
+            return 0;
+        }
+        return this.faces[(this.cells[neighbour(cell, side)] << 2) | ((side + 2) & 3)];
+    }
+
+    /**
+     * Gets the neighbour of a cell on a side that is not a border.
+     */
+    private int neighbour(int cell, int side) {
+        return switch (side) {
+            case 0 ->
+                cell - 1;
+            case 1 ->
+                cell - this.cols;
+            case 2 ->
+                cell + 1;
+            default ->
+                cell + this.cols;
+        };
+    }
+
+}
@@ -0,0 +1,74 @@
+package puzzle;
+
+import java.util.Arrays;
+
+/**
+ * The canonical form of a solution, equal for every solution that shows the
+ * same picture: the same solution turned around as a whole, or with identical
+ * pieces swapped. Every cell holds the class and orientation of its piece,
+ * and the form is the smallest of those arrays over the rotations of the
+ * board that keep its shape (two for a rectangle, four for a square).
+ *
+ * Pieces cannot be turned over, so mirror images are different pictures.
+ *
+ * @author jessmann
+ */
+final class CanonicalSolution {
+
+    private final int[] cells;
+    private final int hash;
+
+    private CanonicalSolution(int[] cells) {
+        this.cells = cells;
+        this.hash = Arrays.hashCode(cells);
+    }
+
+    /**
+     * Gets the canonical form of a full board.
+     *
+     * @param board The board.
+     * @param classes The classes of the pieces of the puzzle.
+     * @return The canonical form.
+     */
+    static CanonicalSolution of(Board board, PieceClasses classes) {
+        int rows = board.getRows();
+        int cols = board.getCols();
+        int[] best = null;
+        for (int turns = 0; turns < 4; turns++) {
+            if ((turns & 1) == 1 && rows != cols) {
+                continue;
+            }
+            int[] cells = new int[rows * cols];
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < cols; col++) {
+                    // The cell that ends up at (row, col) once the board is turned clockwise
+                    int from = switch (turns) {
+                        case 0 ->
+                            row * cols + col;
+                        case 1 ->
+                            (rows - 1 - col) * cols + row;
+                        case 2 ->
+                            (rows - 1 - row) * cols + (cols - 1 - col);
+                        default ->
+                            col * cols + (cols - 1 - row);
+                    };
+                    cells[row * cols + col] = classes.orientationOf(board.getCandidate(from), turns);
+                }
+            }
+            if (best == null || Arrays.compare(cells, best) < 0) {
+                best = cells;
+            }
+        }
+        return new CanonicalSolution(best);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof CanonicalSolution solution && Arrays.equals(this.cells, solution.cells);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+}
@@ -0,0 +1,25 @@
+package puzzle;
+
+/**
+ * A policy that chooses the next cell the solver fills.
+ *
+ * The top left corner is always filled first, with a fixed piece, so the
+ * policy is asked from depth 1. Implementations are shared by the parallel
+ * workers and must not keep state between calls.
+ *
+ * @author jessmann
+ */
+@FunctionalInterface
+public interface CellOrder {
+
+    /**
+     * Chooses the next empty cell to fill.
+     *
+     * @param board The partial solution.
+     * @param depth The number of pieces already placed.
+     * @return The cell to fill, or -1 to backtrack because the partial
+     * solution cannot be completed.
+     */
+    int nextCell(Board board, int depth);
+
+}
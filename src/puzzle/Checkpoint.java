@@ -0,0 +1,230 @@
+package puzzle;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A snapshot of a sequential search, from which it can be resumed: the
+ * position of the search stack and the number of full boards reported so far.
+ *
+ * A checkpoint file holds the magic number PZC2, the version, the width in
+ * bytes of a cell (2 or 4), the number of columns and rows as ints, then a
+ * fingerprint of the pieces, the strategy (-1 for a custom cell order) and
+ * the unique solutions flag as bytes, the depth of the search, the number of
+ * cursors and the cursors, and the number of reported boards as a long. All
+ * numbers are big-endian.
+ *
+ * The boards themselves are appended by the search, as they are found, to a
+ * boards file next to the checkpoint: their packed candidates, cell by cell,
+ * in the width of the checkpoint. The checkpoint stays the same size however
+ * many boards are found, and a board the search appended after the last
+ * checkpoint is dropped on resuming, as the search finds it again.
+ *
+ * @author jessmann
+ */
+final class Checkpoint {
+
+    private final int fingerprint;
+    private final int strategy;
+    private final boolean unique;
+    private final int depth;
+    private final int[] position;
+    private final long boards;
+
+    /**
+     * Constructs a checkpoint.
+     *
+     * @param fingerprint The fingerprint of the pieces of the puzzle.
+     * @param strategy The ordinal of the strategy, or -1 for a custom order.
+     * @param unique True if only unique solutions are kept.
+     * @param depth The depth of the search.
+     * @param position The cursors of the search stack, from the first depth.
+     * @param boards The number of boards in the boards file.
+     */
+    Checkpoint(int fingerprint, int strategy, boolean unique, int depth, int[] position, long boards) {
+        this.fingerprint = fingerprint;
+        this.strategy = strategy;
+        this.unique = unique;
+        this.depth = depth;
+        this.position = position;
+        this.boards = boards;
+    }
+
+    int getStrategy() {
+        return this.strategy;
+    }
+
+    boolean isUnique() {
+        return this.unique;
+    }
+
+    int getDepth() {
+        return this.depth;
+    }
+
+    int[] getPosition() {
+        return this.position;
+    }
+
+    long getBoards() {
+        return this.boards;
+    }
+
+    /**
+     * Gets the path of the boards file of a checkpoint.
+     *
+     * @param path The path of the checkpoint.
+     * @return The path of its boards file.
+     */
+    static Path boardsFile(Path path) {
+        return path.resolveSibling(path.getFileName() + ".boards");
+    }
+
+    /**
+     * Gets the size of a board in the boards file.
+     *
+     * @param puzzle The puzzle being solved.
+     * @return The size in bytes.
+     */
+    static int boardSize(Puzzle puzzle) {
+        return puzzle.getPieces().length * BinaryFormat.cellWidth(puzzle);
+    }
+
+    /**
+     * Reads the boards counted by the checkpoint from its boards file, one at
+     * a time, so they are never all in memory.
+     *
+     * @param path The path of the checkpoint.
+     * @param puzzle The puzzle being solved.
+     * @param visitor The visitor of the boards. The array it is given is
+     * reused for the next board.
+     * @throws PuzzleFormatException If the boards file is too short or holds
+     * an invalid piece.
+     * @throws IOException If an I/O error occurs.
+     */
+    void readBoards(Path path, Puzzle puzzle, BoardVisitor visitor) throws IOException {
+        int width = BinaryFormat.cellWidth(puzzle);
+        int numCells = puzzle.getPieces().length;
+        int[] board = new int[numCells];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(FileChannel.open(boardsFile(path), StandardOpenOption.READ))))) {
+            for (long i = 0; i < this.boards; i++) {
+                for (int cell = 0; cell < numCells; cell++) {
+                    board[cell] = (width == 2) ? in.readUnsignedShort() : in.readInt();
+                    if (board[cell] < 0 || PieceIndex.pieceOf(board[cell]) >= numCells) {
+                        throw new PuzzleFormatException("Invalid piece in board " + (i + 1) + ".");
+                    }
+                }
+                visitor.visit(board);
+            }
+        } catch (EOFException e) {
+            throw new PuzzleFormatException("The boards file holds fewer boards than the checkpoint.");
+        }
+    }
+
+    /**
+     * Gets the fingerprint of the pieces of a puzzle, which tells whether a
+     * checkpoint was written for it.
+     *
+     * @param puzzle The puzzle.
+     * @return The fingerprint.
+     */
+    static int fingerprint(Puzzle puzzle) {
+        int hash = 1;
+        for (PuzzlePiece piece : puzzle.getPieces()) {
+            for (int face : piece.getFaces()) {
+                hash = 31 * hash + face;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Writes the checkpoint to a file. It is written to a temporary file that
+     * then replaces the file, so a crash never leaves half a checkpoint.
+     *
+     * @param path The path of the file.
+     * @param puzzle The puzzle being solved.
+     * @throws IOException If an I/O error occurs.
+     */
+    void write(Path path, Puzzle puzzle) throws IOException {
+        int width = BinaryFormat.cellWidth(puzzle);
+        ByteBuffer out = ByteBuffer.allocate(BinaryFormat.HEADER_SIZE + 22 + this.position.length * 4);
+        BinaryFormat.writeHeader(out, BinaryFormat.CHECKPOINT_MAGIC, width, puzzle.getCols(), puzzle.getRows());
+        out.putInt(this.fingerprint).put((byte) this.strategy).put((byte) (this.unique ? 1 : 0));
+        out.putInt(this.depth).putInt(this.position.length);
+        for (int cursor : this.position) {
+            out.putInt(cursor);
+        }
+        out.putLong(this.boards);
+        out.flip();
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            BinaryFormat.writeFully(channel, out);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a checkpoint written for a puzzle.
+     *
+     * @param path The path of the file.
+     * @param puzzle The puzzle being solved.
+     * @return The checkpoint.
+     * @throws IOException If an I/O error occurs.
+     * @throws PuzzleFormatException If the file is not a valid checkpoint of
+     * the puzzle.
+     */
+    static Checkpoint read(Path path, Puzzle puzzle) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+        int width = BinaryFormat.readHeader(in, BinaryFormat.CHECKPOINT_MAGIC);
+        int numCells = puzzle.getPieces().length;
+        if (width != BinaryFormat.cellWidth(puzzle) || in.remaining() < 22
+                || in.getInt() != puzzle.getCols() || in.getInt() != puzzle.getRows()
+                || in.getInt() != fingerprint(puzzle)) {
+            throw new PuzzleFormatException("The checkpoint was not written for this puzzle.");
+        }
+        int strategy = in.get();
+        boolean unique = in.get() != 0;
+        int depth = in.getInt();
+        int length = in.getInt();
+        if (depth < 0 || depth > numCells || length != Math.min(depth + 1, numCells)
+                || in.remaining() != length * 4L + 8) {
+            throw new PuzzleFormatException("Invalid search position.");
+        }
+        int[] position = new int[length];
+        for (int i = 0; i < length; i++) {
+            position[i] = in.getInt();
+        }
+        long boards = in.getLong();
+        if (boards < 0) {
+            throw new PuzzleFormatException("Invalid number of boards.");
+        }
+        return new Checkpoint(fingerprint(puzzle), strategy, unique, depth, position, boards);
+    }
+
+    /**
+     * Receives the boards read from a boards file.
+     */
+    interface BoardVisitor {
+
+        /**
+         * Receives a board.
+         *
+         * @param board The packed candidates of the board, cell by cell.
+         * @throws IOException If the board cannot be handled.
+         */
+        void visit(int[] board) throws IOException;
+    }
+}
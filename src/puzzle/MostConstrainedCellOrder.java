@@ -0,0 +1,45 @@
+package puzzle;
+
+/**
+ * A cell order that fills the empty cell with the fewest remaining candidates
+ * first, among the cells next to a placed piece.
+ *
+ * Counting the candidates of every cell on the frontier also works as forward
+ * checking: as soon as one of them has no candidates left the search
+ * backtracks, instead of finding out when it reaches that cell.
+ *
+ * @author jessmann
+ */
+public class MostConstrainedCellOrder implements CellOrder {
+
+    /**
+     * Chooses the frontier cell with the fewest candidates. Ties are broken by
+     * the lowest cell, so the order is row by row when all counts are equal.
+     *
+     * @param board The partial solution.
+     * @param depth The number of pieces already placed.
+     * @return The cell to fill, or -1 if a frontier cell has no candidates.
+     */
+    @Override
+    public int nextCell(Board board, int depth) {
+        int numCells = board.getRows() * board.getCols();
+        int bestCell = -1;
+        int bestCount = Integer.MAX_VALUE;
+
+        for (int cell = 0; cell < numCells; cell++) {
+            if (board.isFrontier(cell)) {
+                int count = board.countCandidates(cell, bestCount);
+                if (count == 0) {
+                    // Forward checking: this cell can no longer be filled
+                    return -1;
+                }
+                if (count < bestCount) {
+                    bestCount = count;
+                    bestCell = cell;
+                }
+            }
+        }
+        return bestCell;
+    }
+
+}
@@ -0,0 +1,184 @@
+package puzzle;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups the pieces of a puzzle that are identical up to rotation. Swapping
+ * two pieces of the same class, turned the same way, gives the same picture,
+ * so a solution can be described by the class and orientation of every cell.
+ *
+ * Classes are numbered in the order of their first piece, which is the
+ * representative of the class. The rotation of a piece is the number of 90º
+ * rotations that turn the representative into it.
+ *
+ * @author jessmann
+ */
+public class PieceClasses {
+
+    private final int[] classOf;
+    private final int[] rotations;
+    private final int[] representatives;
+    private final int[] sizes;
+    private final int[][] members;
+    private final int[] orientations;
+
+    /**
+     * Groups the given pieces into classes.
+     *
+     * @param pieces An array of puzzle pieces.
+     */
+    public PieceClasses(PuzzlePiece[] pieces) {
+        this.classOf = new int[pieces.length];
+        this.rotations = new int[pieces.length];
+        int[] firsts = new int[pieces.length];
+        int count = 0;
+
+        Map<List<Integer>, Integer> classes = new HashMap<>();
+        for (int i = 0; i < pieces.length; i++) {
+            List<Integer> key = smallestRotation(pieces[i]);
+            Integer found = classes.get(key);
+            if (found == null) {
+                found = count;
+                firsts[count++] = i;
+                classes.put(key, found);
+            }
+            this.classOf[i] = found;
+            PuzzlePiece representative = pieces[firsts[found]];
+            while (!Arrays.equals(representative.getFaces(this.rotations[i]), pieces[i].getFaces())) {
+                this.rotations[i]++;
+            }
+        }
+
+        this.representatives = Arrays.copyOf(firsts, count);
+        this.sizes = new int[count];
+        for (int cls : this.classOf) {
+            this.sizes[cls]++;
+        }
+        this.members = new int[count][];
+        for (int cls = 0; cls < count; cls++) {
+            this.members[cls] = new int[this.sizes[cls]];
+        }
+        int[] filled = new int[count];
+        for (int i = 0; i < pieces.length; i++) {
+            this.members[this.classOf[i]][filled[this.classOf[i]]++] = i;
+        }
+
+        // Map every orientation of a class to the first rotation with the same faces
+        this.orientations = new int[count << 2];
+        for (int cls = 0; cls < count; cls++) {
+            PuzzlePiece representative = pieces[this.representatives[cls]];
+            for (int rotation = 0; rotation < 4; rotation++) {
+                int first = 0;
+                while (!Arrays.equals(representative.getFaces(first), representative.getFaces(rotation))) {
+                    first++;
+                }
+                this.orientations[(cls << 2) | rotation] = first;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of classes.
+     *
+     * @return The number of classes.
+     */
+    public int getClassCount() {
+        return this.representatives.length;
+    }
+
+    /**
+     * Gets the class of a piece.
+     *
+     * @param piece The index of the piece in the puzzle.
+     * @return The class of the piece.
+     */
+    public int getClassOf(int piece) {
+        return this.classOf[piece];
+    }
+
+    /**
+     * Gets the rotation that turns the representative of its class into a
+     * piece.
+     *
+     * @param piece The index of the piece in the puzzle.
+     * @return The number of 90º rotations, from 0 to 3.
+     */
+    public int getRotation(int piece) {
+        return this.rotations[piece];
+    }
+
+    /**
+     * Gets the first piece of a class.
+     *
+     * @param cls The class.
+     * @return The index of the piece in the puzzle.
+     */
+    public int getRepresentative(int cls) {
+        return this.representatives[cls];
+    }
+
+    /**
+     * Gets the number of pieces in a class.
+     *
+     * @param cls The class.
+     * @return The number of identical pieces.
+     */
+    public int getSize(int cls) {
+        return this.sizes[cls];
+    }
+
+    /**
+     * Gets the pieces of a class.
+     *
+     * @param cls The class.
+     * @return The indexes of the pieces in the puzzle, in increasing order.
+     * The array is shared and must not be modified.
+     */
+    public int[] getMembers(int cls) {
+        return this.members[cls];
+    }
+
+    /**
+     * Gets the orientation of a candidate in its class: its class and the
+     * first rotation of the representative with the same faces, packed as a
+     * candidate. Candidates with the same orientation show the same faces.
+     *
+     * @param candidate A packed candidate.
+     * @param turns Additional 90º rotations of the candidate.
+     * @return The class and rotation, packed as a candidate.
+     */
+    public int orientationOf(int candidate, int turns) {
+        int piece = PieceIndex.pieceOf(candidate);
+        int cls = this.classOf[piece];
+        int rotation = (this.rotations[piece] + PieceIndex.rotationOf(candidate) + turns) & 3;
+        return PieceIndex.candidate(cls, this.orientations[(cls << 2) | rotation]);
+    }
+
+    /**
+     * Gets the faces of the rotation of a piece that comes first in list
+     * order, which is the same for every piece of a class.
+     */
+    private static List<Integer> smallestRotation(PuzzlePiece piece) {
+        List<Integer> smallest = null;
+        for (int rotation = 0; rotation < 4; rotation++) {
+            List<Integer> faces = Arrays.stream(piece.getFaces(rotation)).boxed().toList();
+            if (smallest == null || compare(faces, smallest) < 0) {
+                smallest = faces;
+            }
+        }
+        return smallest;
+    }
+
+    private static int compare(List<Integer> a, List<Integer> b) {
+        for (int i = 0; i < 4; i++) {
+            int c = Integer.compare(a.get(i), b.get(i));
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,322 @@
+package puzzle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index of puzzle pieces by the faces a cell requires.
+ *
+ * Every orientation of every piece is registered under the keys formed by its
+ * border class (which of its faces are borders) and each pair of adjacent faces
+ * (left and top, top and right, right and bottom, bottom and left), so the
+ * solver only visits the candidates that can actually fit a cell, whichever two
+ * neighbouring sides of the cell are already known. Every orientation is also
+ * keyed by each single face and by its border class alone, for cells with fewer
+ * known sides. A candidate is a piece index and a rotation packed into a single
+ * int, where the rotation is relative to the faces the piece had when the index
+ * was built.
+ *
+ * Pieces that are identical up to rotation are registered once, under the first
+ * piece of their class, so the solver branches once per class instead of once
+ * per copy. The faces of every candidate are copied into a flat table, so they
+ * are read with a single array access and later changes to the pieces do not
+ * affect the index.
+ *
+ * @author jessmann
+ */
+public class PieceIndex {
+
+    /**
+     * Border class bit of the left face.
+     */
+    public static final int LEFT = 1;
+
+    /**
+     * Border class bit of the top face.
+     */
+    public static final int TOP = 2;
+
+    /**
+     * Border class bit of the right face.
+     */
+    public static final int RIGHT = 4;
+
+    /**
+     * Border class bit of the bottom face.
+     */
+    public static final int BOTTOM = 8;
+
+    private static final int[] EMPTY = new int[0];
+
+    private static final int SIDE_KEYS = 4;
+    private static final int BORDER_KEY = 8;
+
+    private final int[] faces;
+    private final int[] keys;
+    private final int[] keyFaces;
+    private final int[] keyNextFaces;
+    private final int[][] slots;
+    private final int mask;
+
+    /**
+     * Builds the index for the given pieces.
+     *
+     * @param pieces An array of puzzle pieces.
+     */
+    public PieceIndex(PuzzlePiece[] pieces) {
+        this(pieces, new PieceClasses(pieces));
+    }
+
+    /**
+     * Builds the index for the given pieces, registering only the first piece
+     * of every class.
+     *
+     * @param pieces An array of puzzle pieces.
+     * @param classes The classes of the pieces.
+     */
+    public PieceIndex(PuzzlePiece[] pieces, PieceClasses classes) {
+        this.faces = new int[pieces.length << 4];
+        for (int i = 0; i < pieces.length; i++) {
+            for (int rotation = 0; rotation < 4; rotation++) {
+                for (int face = 0; face < 4; face++) {
+                    this.faces[(candidate(i, rotation) << 2) | face] = pieces[i].getFace(rotation, face);
+                }
+            }
+        }
+
+        Map<List<Integer>, List<Integer>> groups = new LinkedHashMap<>();
+
+        for (int cls = 0; cls < classes.getClassCount(); cls++) {
+            int i = classes.getRepresentative(cls);
+            for (int rotation = 0; rotation < 4; rotation++) {
+                int candidate = candidate(i, rotation);
+
+                if (isRepeated(candidate)) {
+                    // Symmetric pieces would otherwise be tried twice
+                    continue;
+                }
+
+                int borders = borderClass(candidate);
+                for (int side = 0; side < 4; side++) {
+                    List<Integer> pairKey = List.of(
+                            (side << 4) | borders, getFace(candidate, side), getFace(candidate, (side + 1) & 3));
+                    groups.computeIfAbsent(pairKey, k -> new ArrayList<>()).add(candidate);
+
+                    List<Integer> sideKey = List.of(((SIDE_KEYS + side) << 4) | borders, getFace(candidate, side), 0);
+                    groups.computeIfAbsent(sideKey, k -> new ArrayList<>()).add(candidate);
+                }
+                List<Integer> borderKey = List.of((BORDER_KEY << 4) | borders, 0, 0);
+                groups.computeIfAbsent(borderKey, k -> new ArrayList<>()).add(candidate);
+            }
+        }
+
+        int capacity = 16;
+        while (capacity < groups.size() * 2) {
+            capacity <<= 1;
+        }
+        this.mask = capacity - 1;
+        this.keys = new int[capacity];
+        this.keyFaces = new int[capacity];
+        this.keyNextFaces = new int[capacity];
+        this.slots = new int[capacity][];
+
+        for (Map.Entry<List<Integer>, List<Integer>> group : groups.entrySet()) {
+            List<Integer> key = group.getKey();
+            int slot = hash(key.get(0), key.get(1), key.get(2)) & this.mask;
+            while (this.slots[slot] != null) {
+                slot = (slot + 1) & this.mask;
+            }
+            this.keys[slot] = key.get(0);
+            this.keyFaces[slot] = key.get(1);
+            this.keyNextFaces[slot] = key.get(2);
+            this.slots[slot] = group.getValue().stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Gets the candidates that fit a cell.
+     *
+     * @param borders The border class of the cell.
+     * @param left The face the candidate must show on its left.
+     * @param top The face the candidate must show on its top.
+     * @return The packed candidates, ordered by piece index. The array is
+     * shared and must not be modified.
+     */
+    public int[] getCandidates(int borders, int left, int top) {
+        return getCandidates(borders, 0, left, top);
+    }
+
+    /**
+     * Gets the candidates that fit a cell, by two adjacent faces.
+     *
+     * @param borders The border class of the cell.
+     * @param side The index of the first face: 0 left, 1 top, 2 right, 3
+     * bottom.
+     * @param face The value the candidate must show on that side.
+     * @param nextFace The value the candidate must show on the next side,
+     * clockwise.
+     * @return The packed candidates, ordered by piece index. The array is
+     * shared and must not be modified.
+     */
+    public int[] getCandidates(int borders, int side, int face, int nextFace) {
+        return lookup((side << 4) | borders, face, nextFace);
+    }
+
+    /**
+     * Gets the candidates that fit a cell, by a single face.
+     *
+     * @param borders The border class of the cell.
+     * @param side The index of the face: 0 left, 1 top, 2 right, 3 bottom.
+     * @param face The value the candidate must show on that side.
+     * @return The packed candidates, ordered by piece index. The array is
+     * shared and must not be modified.
+     */
+    public int[] getSideCandidates(int borders, int side, int face) {
+        return lookup(((SIDE_KEYS + side) << 4) | borders, face, 0);
+    }
+
+    /**
+     * Gets the candidates that fit a cell, by its border class only.
+     *
+     * @param borders The border class of the cell.
+     * @return The packed candidates, ordered by piece index. The array is
+     * shared and must not be modified.
+     */
+    public int[] getCandidates(int borders) {
+        return lookup((BORDER_KEY << 4) | borders, 0, 0);
+    }
+
+    /**
+     * Finds the candidates registered under a key.
+     */
+    private int[] lookup(int key, int face, int nextFace) {
+        int slot = hash(key, face, nextFace) & this.mask;
+        while (this.slots[slot] != null) {
+            if (this.keys[slot] == key && this.keyFaces[slot] == face && this.keyNextFaces[slot] == nextFace) {
+                return this.slots[slot];
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Gets a face of a candidate in its orientation.
+     *
+     * @param candidate A packed candidate.
+     * @param face The index of the face: 0 left, 1 top, 2 right, 3 bottom.
+     * @return The value of the face.
+     */
+    public int getFace(int candidate, int face) {
+        return this.faces[(candidate << 2) | face];
+    }
+
+    /**
+     * Gets the table of the faces of every candidate, where the face of a
+     * candidate is at (candidate << 2) | face.
+     *
+     * @return The face table. The array is shared and must not be modified.
+     */
+    int[] getFaceTable() {
+        return this.faces;
+    }
+
+    /**
+     * Packs a piece index and a rotation into a candidate.
+     *
+     * @param piece The index of the piece in the puzzle.
+     * @param rotation The number of 90º rotations, from 0 to 3.
+     * @return The packed candidate.
+     */
+    public static int candidate(int piece, int rotation) {
+        return (piece << 2) | rotation;
+    }
+
+    /**
+     * Gets the piece index of a candidate.
+     *
+     * @param candidate A packed candidate.
+     * @return The index of the piece in the puzzle.
+     */
+    public static int pieceOf(int candidate) {
+        return candidate >>> 2;
+    }
+
+    /**
+     * Gets the rotation of a candidate.
+     *
+     * @param candidate A packed candidate.
+     * @return The number of 90º rotations, from 0 to 3.
+     */
+    public static int rotationOf(int candidate) {
+        return candidate & 3;
+    }
+
+    /**
+     * Gets the border class of a cell in a puzzle of the given dimensions.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @param rows The number of rows.
+     * @param cols The number of columns.
+     * @return The border class of the cell.
+     */
+    public static int borderClass(int row, int col, int rows, int cols) {
+        int borders = 0;
+        if (col == 0) {
+            borders |= LEFT;
+        }
+        if (row == 0) {
+            borders |= TOP;
+        }
+        if (col == cols - 1) {
+            borders |= RIGHT;
+        }
+        if (row == rows - 1) {
+            borders |= BOTTOM;
+        }
+        return borders;
+    }
+
+    /**
+     * Gets the border class of a candidate in its orientation.
+     */
+    private int borderClass(int candidate) {
+        int borders = 0;
+        for (int i = 0; i < 4; i++) {
+            if (getFace(candidate, i) == 0) {
+                borders |= 1 << i;
+            }
+        }
+        return borders;
+    }
+
+    /**
+     * Checks if an earlier rotation of the same piece has the same faces.
+     */
+    private boolean isRepeated(int candidate) {
+        int piece = pieceOf(candidate);
+        for (int i = 0; i < rotationOf(candidate); i++) {
+            int other = candidate(piece, i);
+            if (Arrays.equals(this.faces, other << 2, (other << 2) + 4, this.faces, candidate << 2, (candidate << 2) + 4)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Hashes a key of the index.
+     */
+    private static int hash(int key, int face, int nextFace) {
+        // Spread the bits over the whole int: small face values would
+        // otherwise fill only the first slots and make long probe chains
+        long h = ((long) key << 42) ^ ((long) face << 21) ^ nextFace;
+        h *= 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+}
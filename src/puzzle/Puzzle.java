@@ -1,9 +1,14 @@
 package puzzle;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
 import java.io.IOException;
-import java.util.Arrays;
+import java.io.Writer;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * Represents a puzzle.
@@ -15,6 +20,8 @@ public class Puzzle {
     private int cols;
     private int rows;
     private PuzzlePiece pieces[];
+    private PieceIndex index;
+    private PieceClasses classes;
 
     /**
      * Constructor for Puzzle.
@@ -81,6 +88,34 @@ public class Puzzle {
      */
     public void setPieces(PuzzlePiece[] pieces) {
         this.pieces = pieces;
+        this.index = null;
+        this.classes = null;
+    }
+
+    /**
+     * Gets the index of the pieces by the faces a cell requires. The index is
+     * built once, the first time it is needed, and reused afterwards.
+     *
+     * @return The piece index.
+     */
+    public PieceIndex getIndex() {
+        if (this.index == null) {
+            this.index = new PieceIndex(getPieces(), getClasses());
+        }
+        return this.index;
+    }
+
+    /**
+     * Gets the classes of the pieces that are identical up to rotation. They
+     * are grouped once, the first time they are needed.
+     *
+     * @return The piece classes.
+     */
+    public PieceClasses getClasses() {
+        if (this.classes == null) {
+            this.classes = new PieceClasses(getPieces());
+        }
+        return this.classes;
     }
 
     /**
@@ -121,51 +156,78 @@ public class Puzzle {
     }
 
     /**
-     * Loads a puzzle from a file.
+     * Counts the faces of every edge colour. Border faces (0) are not
+     * counted. In a solution every inner edge joins two faces of the same
+     * colour, so rare colours narrow the search and common ones widen it.
+     *
+     * @return The number of faces of every colour, by colour.
+     */
+    public SortedMap<Integer, Integer> getColourCounts() {
+        SortedMap<Integer, Integer> counts = new TreeMap<>();
+        for (PuzzlePiece piece : this.pieces) {
+            for (int face : piece.getFaces()) {
+                if (face != 0) {
+                    counts.merge(face, 1, Integer::sum);
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Loads a puzzle from a file. Use PuzzleLoader to get the reason of an
+     * error instead of null.
      *
      * @param fileName The name of the file containing the puzzle data.
      * @return A Puzzle object representing the loaded puzzle, or null if an
      * error occurs.
      */
     public static Puzzle loadPuzzle(String fileName) {
-        try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
-            String firstRow = br.readLine();
-            String[] dimensions = firstRow.split(" ");
-            int cols = Integer.parseInt(dimensions[0]);
-            int rows = Integer.parseInt(dimensions[1]);
-
-            PuzzlePiece[] pieces = new PuzzlePiece[rows * cols];
-
-            int numPieces = cols * rows;
-            for (int i = 0; i < numPieces; i++) {
-                String line = br.readLine();
-                String[] faceValues = line.split(" ");
-
-                if (faceValues.length != 4) {
-                    handleError("Invalid piece format.");
-                    return null;
-                }
-
-                int id = i + 1;
-                int[] faces = Arrays.stream(faceValues).mapToInt(Integer::parseInt).toArray();
-
-                PuzzlePiece piece = new PuzzlePiece(id, faces);
-                pieces[i] = piece;
-            }
-
-            if (numPieces != pieces.length) {
-                handleError("The number of pieces does not fit puzzle dimensions.");
-                return null;
-            }
-
-            return new Puzzle(cols, rows, pieces);
-
-        } catch (IOException e) {
+        try {
+            return PuzzleLoader.load(Paths.get(fileName));
+        } catch (PuzzleFormatException e) {
+            handleError(e.getMessage());
+            return null;
+        } catch (NoSuchFileException e) {
+            handleError("File not found: " + e.getMessage());
+            return null;
+        } catch (IOException | InvalidPathException e) {
             handleError("Reading file: " + e.getMessage());
             return null;
         }
     }
 
+    /**
+     * Saves the puzzle to a file, in the format read by loadPuzzle.
+     *
+     * @param fileName The name of the file.
+     * @return True if the puzzle was saved, false if an error occurs.
+     */
+    public boolean savePuzzle(String fileName) {
+        try (Writer writer = new BufferedWriter(new FileWriter(fileName))) {
+            writePuzzle(writer);
+            return true;
+        } catch (IOException e) {
+            handleError("Writing file: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Writes the puzzle in the format read by loadPuzzle: the number of
+     * columns and rows, and then the faces of a piece per line.
+     *
+     * @param writer The writer the puzzle is written to.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void writePuzzle(Writer writer) throws IOException {
+        writer.write(this.cols + " " + this.rows + "\n");
+        for (PuzzlePiece piece : getPieces()) {
+            int[] faces = piece.getFaces();
+            writer.write(faces[0] + " " + faces[1] + " " + faces[2] + " " + faces[3] + "\n");
+        }
+    }
+
     /**
      * Handles errors by printing an error message to the console.
      *
@@ -0,0 +1,272 @@
+package puzzle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Cheap checks of a puzzle that find most puzzles without a solution before
+ * searching them, and the dense numbering of its edge colours.
+ *
+ * The checks only count pieces and faces. The pieces must have the borders of
+ * the cells of the grid: as many corner, edge and inner pieces as there are
+ * such cells, up to rotation. Every edge joins two faces of the same colour,
+ * so every colour must be on an even number of faces. The same holds for the
+ * faces of the border pieces that join along the frame, and the faces of the
+ * edge pieces that point inwards must be matched by faces of inner pieces. A
+ * puzzle that passes every check may still have no solution.
+ *
+ * The colours are numbered from 1, from the most common to the rarest, so a
+ * puzzle with up to 255 colours can keep them in bytes.
+ *
+ * @author jessmann
+ */
+public final class PuzzleAnalysis {
+
+    private final Puzzle puzzle;
+    private final List<String> problems = new ArrayList<>();
+    private final int[] colours;
+    private final Map<Integer, Integer> denseColours = new TreeMap<>();
+
+    private PuzzleAnalysis(Puzzle puzzle) {
+        this.puzzle = puzzle;
+        SortedMap<Integer, Integer> counts = puzzle.getColourCounts();
+        this.colours = counts.keySet().stream()
+                .sorted((a, b) -> counts.get(a).equals(counts.get(b)) ? Integer.compare(a, b) : Integer.compare(counts.get(b), counts.get(a)))
+                .mapToInt(Integer::intValue).toArray();
+        for (int i = 0; i < this.colours.length; i++) {
+            this.denseColours.put(this.colours[i], i + 1);
+        }
+
+        if (checkShapes()) {
+            checkColours(counts);
+        }
+    }
+
+    /**
+     * Analyses a puzzle.
+     *
+     * @param puzzle The puzzle.
+     * @return The analysis.
+     */
+    public static PuzzleAnalysis of(Puzzle puzzle) {
+        return new PuzzleAnalysis(puzzle);
+    }
+
+    /**
+     * Checks if the puzzle passed every check. A puzzle that did not has no
+     * solution.
+     *
+     * @return True if no problem was found, false otherwise.
+     */
+    public boolean isFeasible() {
+        return this.problems.isEmpty();
+    }
+
+    /**
+     * Gets the reasons why the puzzle has no solution.
+     *
+     * @return The problems found, or an empty list.
+     */
+    public List<String> getProblems() {
+        return Collections.unmodifiableList(this.problems);
+    }
+
+    /**
+     * Gets the edge colours of the puzzle, from the most common to the rarest.
+     * Colours on as many faces are in increasing order.
+     *
+     * @return The colours, by their dense number minus 1.
+     */
+    public int[] getColours() {
+        return this.colours.clone();
+    }
+
+    /**
+     * Gets the dense number of a colour.
+     *
+     * @param colour The colour of a face.
+     * @return The dense number, from 1, or 0 for borders.
+     * @throws IllegalArgumentException If no face of the puzzle has the
+     * colour.
+     */
+    public int getDenseColour(int colour) {
+        if (colour == 0) {
+            return 0;
+        }
+        Integer dense = this.denseColours.get(colour);
+        if (dense == null) {
+            throw new IllegalArgumentException("Not a colour of the puzzle: " + colour + ".");
+        }
+        return dense;
+    }
+
+    /**
+     * Gets a copy of the puzzle with the colours replaced by their dense
+     * numbers. The pieces keep their ids and their order, so the solutions of
+     * both puzzles place the same pieces in the same rotations.
+     *
+     * @return The normalised puzzle.
+     */
+    public Puzzle normalise() {
+        PuzzlePiece[] pieces = this.puzzle.getPieces();
+        PuzzlePiece[] normalised = new PuzzlePiece[pieces.length];
+        for (int i = 0; i < pieces.length; i++) {
+            int[] faces = new int[4];
+            for (int face = 0; face < 4; face++) {
+                faces[face] = getDenseColour(pieces[i].getFaces()[face]);
+            }
+            normalised[i] = new PuzzlePiece(pieces[i].getId(), faces);
+        }
+        return new Puzzle(this.puzzle.getCols(), this.puzzle.getRows(), normalised);
+    }
+
+    /**
+     * Return a String with the result of the checks.
+     *
+     * @return A String: "Feasible." or the problems found, one per line.
+     */
+    @Override
+    public String toString() {
+        return isFeasible() ? "Feasible." : String.join("\n", this.problems);
+    }
+
+    /**
+     * Compares the borders of the pieces with the borders of the cells, up to
+     * rotation.
+     *
+     * @return True if every piece fits some cell.
+     */
+    private boolean checkShapes() {
+        int rows = this.puzzle.getRows();
+        int cols = this.puzzle.getCols();
+        PuzzlePiece[] pieces = this.puzzle.getPieces();
+        if (pieces.length != rows * cols) {
+            this.problems.add("The number of pieces does not fit puzzle dimensions: expected "
+                    + rows * cols + ", found " + pieces.length + ".");
+            return false;
+        }
+
+        int[] cells = new int[16];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                cells[shape(PieceIndex.borderClass(row, col, rows, cols))]++;
+            }
+        }
+        int[] found = new int[16];
+        for (PuzzlePiece piece : pieces) {
+            found[shape(borders(piece))]++;
+        }
+        for (int shape = 0; shape < 16; shape++) {
+            if (cells[shape] != found[shape]) {
+                this.problems.add("The puzzle needs " + cells[shape] + " " + describe(shape)
+                        + ", found " + found[shape] + ".");
+            }
+        }
+        return isFeasible();
+    }
+
+    /**
+     * Checks that the faces of every colour can be paired: all of them, the
+     * ones along the frame, and the inward ones of the edge pieces with the
+     * ones of the inner pieces.
+     */
+    private void checkColours(SortedMap<Integer, Integer> counts) {
+        SortedMap<Integer, Integer> frame = new TreeMap<>();
+        SortedMap<Integer, Integer> inward = new TreeMap<>();
+        SortedMap<Integer, Integer> inner = new TreeMap<>();
+        for (PuzzlePiece piece : this.puzzle.getPieces()) {
+            int[] faces = piece.getFaces();
+            int borders = borders(piece);
+            for (int face = 0; face < 4; face++) {
+                if (faces[face] == 0) {
+                    continue;
+                }
+                if (borders == 0) {
+                    inner.merge(faces[face], 1, Integer::sum);
+                } else if ((borders & (1 << ((face + 1) & 3) | 1 << ((face + 3) & 3))) != 0) {
+                    // Next to a border face, so it joins another border piece along the frame
+                    frame.merge(faces[face], 1, Integer::sum);
+                } else {
+                    inward.merge(faces[face], 1, Integer::sum);
+                }
+            }
+        }
+
+        for (Map.Entry<Integer, Integer> count : counts.entrySet()) {
+            if (count.getValue() % 2 != 0) {
+                this.problems.add("Colour " + count.getKey() + " is on " + count.getValue()
+                        + " faces, but every edge joins two faces.");
+            }
+        }
+        for (Map.Entry<Integer, Integer> count : frame.entrySet()) {
+            if (count.getValue() % 2 != 0) {
+                this.problems.add("Colour " + count.getKey() + " is on " + count.getValue()
+                        + " faces along the frame, but every edge of the frame joins two.");
+            }
+        }
+        // Only a puzzle of three rows and columns or more has inner cells next to every edge cell
+        boolean hasInner = this.puzzle.getRows() >= 3 && this.puzzle.getCols() >= 3;
+        for (Map.Entry<Integer, Integer> count : inward.entrySet()) {
+            int matches = inner.getOrDefault(count.getKey(), 0);
+            if (hasInner && count.getValue() > matches) {
+                this.problems.add("Colour " + count.getKey() + " is on " + count.getValue()
+                        + " inward faces of edge pieces, but only on " + matches + " faces of inner pieces.");
+            } else if (!hasInner && count.getValue() % 2 != 0) {
+                this.problems.add("Colour " + count.getKey() + " is on " + count.getValue()
+                        + " inward faces of edge pieces, but they join each other in pairs.");
+            }
+        }
+    }
+
+    /**
+     * Gets the border class of a piece as given: which of its faces are
+     * borders.
+     */
+    private static int borders(PuzzlePiece piece) {
+        int borders = 0;
+        int[] faces = piece.getFaces();
+        for (int face = 0; face < 4; face++) {
+            if (faces[face] == 0) {
+                borders |= 1 << face;
+            }
+        }
+        return borders;
+    }
+
+    /**
+     * Gets the smallest of the four rotations of a border class, which is the
+     * same for the border classes of every rotation of a piece.
+     */
+    private static int shape(int borders) {
+        int shape = borders;
+        for (int rotation = 1; rotation < 4; rotation++) {
+            borders = ((borders << 1) | (borders >> 3)) & 15;
+            shape = Math.min(shape, borders);
+        }
+        return shape;
+    }
+
+    /**
+     * Names the pieces of a shape.
+     */
+    private static String describe(int shape) {
+        return switch (shape) {
+            case 0 ->
+                "inner pieces";
+            case 1 ->
+                "edge pieces";
+            case 3 ->
+                "corner pieces";
+            case 5 ->
+                "pieces with two opposite borders";
+            case 7 ->
+                "pieces with three borders";
+            default ->
+                "pieces with four borders";
+        };
+    }
+}
@@ -0,0 +1,180 @@
+package puzzle;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * The canonical fingerprint of a puzzle, equal for every puzzle with the same
+ * dimensions and pieces, whatever the order of the pieces and the rotation
+ * they are given in.
+ *
+ * Every piece is turned to its rotation that comes first in face order, and
+ * the turned pieces are sorted. The canonical piece k is then the k-th piece
+ * of that order. The fingerprint is the SHA-256 digest of the dimensions and
+ * the faces of the canonical pieces, and it maps solutions of the puzzle to
+ * canonical cells and back, so a solution of one puzzle is a solution of any
+ * puzzle with the same fingerprint.
+ *
+ * @author jessmann
+ */
+public final class PuzzleFingerprint {
+
+    private final Puzzle puzzle;
+    private final String digest;
+    private final int[] pieceOf;
+    private final int[] canonicalOf;
+    private final int[] rotations;
+    private final Map<Integer, Integer> indexOf;
+
+    private PuzzleFingerprint(Puzzle puzzle) {
+        PuzzlePiece[] pieces = puzzle.getPieces();
+        int numPieces = pieces.length;
+        this.puzzle = puzzle;
+        this.rotations = new int[numPieces];
+        int[][] canonical = new int[numPieces][];
+        for (int i = 0; i < numPieces; i++) {
+            for (int rotation = 0; rotation < 4; rotation++) {
+                int[] faces = pieces[i].getFaces(rotation);
+                if (canonical[i] == null || Arrays.compare(faces, canonical[i]) < 0) {
+                    canonical[i] = faces;
+                    this.rotations[i] = rotation;
+                }
+            }
+        }
+
+        Integer[] order = new Integer[numPieces];
+        for (int i = 0; i < numPieces; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Arrays.compare(canonical[a], canonical[b]));
+        this.pieceOf = new int[numPieces];
+        this.canonicalOf = new int[numPieces];
+        this.indexOf = new HashMap<>();
+        for (int k = 0; k < numPieces; k++) {
+            this.pieceOf[k] = order[k];
+            this.canonicalOf[order[k]] = k;
+            this.indexOf.put(pieces[order[k]].getId(), order[k]);
+        }
+
+        ByteBuffer bytes = ByteBuffer.allocate(8 + numPieces * 16);
+        bytes.putInt(puzzle.getCols()).putInt(puzzle.getRows());
+        for (int k = 0; k < numPieces; k++) {
+            for (int face : canonical[this.pieceOf[k]]) {
+                bytes.putInt(face);
+            }
+        }
+        try {
+            this.digest = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes.array()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    /**
+     * Gets the fingerprint of a puzzle.
+     *
+     * @param puzzle The puzzle.
+     * @return The fingerprint.
+     */
+    public static PuzzleFingerprint of(Puzzle puzzle) {
+        return new PuzzleFingerprint(puzzle);
+    }
+
+    /**
+     * Gets the digest of the canonical puzzle.
+     *
+     * @return The SHA-256 digest, as 64 hexadecimal digits.
+     */
+    public String getDigest() {
+        return this.digest;
+    }
+
+    /**
+     * Gets the canonical puzzle: the canonical pieces in order, with ids from
+     * 1, so the canonical cells are the cells of its binary solutions.
+     *
+     * @return The canonical puzzle.
+     */
+    public Puzzle getCanonicalPuzzle() {
+        PuzzlePiece[] pieces = this.puzzle.getPieces();
+        PuzzlePiece[] canonical = new PuzzlePiece[pieces.length];
+        for (int k = 0; k < pieces.length; k++) {
+            int piece = this.pieceOf[k];
+            canonical[k] = new PuzzlePiece(k + 1, pieces[piece].getFaces(this.rotations[piece]));
+        }
+        return new Puzzle(this.puzzle.getCols(), this.puzzle.getRows(), canonical);
+    }
+
+    /**
+     * Gets the canonical cells of a solution of the puzzle: the canonical
+     * piece of every cell and the rotation that turns its canonical faces
+     * into the placed ones, packed as k * 4 + rotation, row by row.
+     *
+     * @param solution The pieces of the solution, by row and column.
+     * @return The canonical cells.
+     * @throws IllegalArgumentException If a piece is not one of the puzzle.
+     */
+    int[] encode(PuzzlePiece[][] solution) {
+        int cols = this.puzzle.getCols();
+        int[] cells = new int[this.puzzle.getRows() * cols];
+        PuzzlePiece[] pieces = this.puzzle.getPieces();
+        for (int row = 0; row < solution.length; row++) {
+            for (int col = 0; col < cols; col++) {
+                PuzzlePiece placed = solution[row][col];
+                Integer index = this.indexOf.get(placed.getId());
+                if (index == null) {
+                    throw new IllegalArgumentException("Not a piece of the puzzle: " + placed.getId() + ".");
+                }
+                int piece = index;
+                int rotation = 0;
+                while (rotation < 4 && !Arrays.equals(pieces[piece].getFaces(rotation), placed.getFaces())) {
+                    rotation++;
+                }
+                if (rotation == 4) {
+                    throw new IllegalArgumentException("Piece " + placed.getId() + " is not turned from the puzzle's.");
+                }
+                cells[row * cols + col] = PieceIndex.candidate(this.canonicalOf[piece], (rotation - this.rotations[piece]) & 3);
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Gets the solution of the puzzle described by canonical cells, with the
+     * ids of the pieces of the puzzle turned to show the same faces.
+     *
+     * @param cells The canonical cells.
+     * @return The pieces of the solution, by row and column.
+     */
+    PuzzlePiece[][] decode(int[] cells) {
+        int cols = this.puzzle.getCols();
+        PuzzlePiece[] pieces = this.puzzle.getPieces();
+        PuzzlePiece[][] solution = new PuzzlePiece[this.puzzle.getRows()][cols];
+        for (int cell = 0; cell < cells.length; cell++) {
+            int piece = this.pieceOf[PieceIndex.pieceOf(cells[cell])];
+            int rotation = (PieceIndex.rotationOf(cells[cell]) + this.rotations[piece]) & 3;
+            solution[cell / cols][cell % cols] = new PuzzlePiece(pieces[piece].getId(), pieces[piece].getFaces(rotation));
+        }
+        return solution;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof PuzzleFingerprint other && this.digest.equals(other.digest);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.digest.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.digest;
+    }
+}
@@ -0,0 +1,45 @@
+package puzzle;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a puzzle file is not in the expected format.
+ *
+ * @author jessmann
+ */
+public class PuzzleFormatException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int line;
+
+    /**
+     * Constructs a PuzzleFormatException for a file without lines.
+     *
+     * @param message The description of the error.
+     */
+    public PuzzleFormatException(String message) {
+        super(message);
+        this.line = 0;
+    }
+
+    /**
+     * Constructs a PuzzleFormatException.
+     *
+     * @param message The description of the error.
+     * @param line The line of the file where the error was found, from 1.
+     */
+    public PuzzleFormatException(String message, int line) {
+        super("Line " + line + ": " + message);
+        this.line = line;
+    }
+
+    /**
+     * Gets the line of the file where the error was found.
+     *
+     * @return The line number, from 1, or 0 for a binary file.
+     */
+    public int getLine() {
+        return this.line;
+    }
+}
@@ -0,0 +1,78 @@
+package puzzle;
+
+import java.util.Random;
+
+/**
+ * Generates solvable puzzles with random edge colours.
+ *
+ * The generator colours every edge between two cells of a grid, cuts the grid
+ * into pieces, and then shuffles and rotates the pieces. The same seed always
+ * generates the same puzzle.
+ *
+ * @author jessmann
+ */
+public class PuzzleGenerator {
+
+    private final Random random;
+
+    /**
+     * Constructor for PuzzleGenerator.
+     *
+     * @param seed The seed of the random generator.
+     */
+    public PuzzleGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Generates a solvable puzzle.
+     *
+     * @param cols The number of columns.
+     * @param rows The number of rows.
+     * @param colours The number of edge colours, numbered from 1. Fewer
+     * colours give more candidates per cell and more solutions.
+     * @return The generated puzzle, with its pieces shuffled and rotated.
+     */
+    public Puzzle generate(int cols, int rows, int colours) {
+        if (cols < 1 || rows < 1 || colours < 1) {
+            throw new IllegalArgumentException("The dimensions and the number of colours must be positive.");
+        }
+
+        // Colour of the edge on the left of every cell, and on top of every cell
+        int[][] vertical = new int[rows][cols + 1];
+        int[][] horizontal = new int[rows + 1][cols];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 1; col < cols; col++) {
+                vertical[row][col] = 1 + this.random.nextInt(colours);
+            }
+        }
+        for (int row = 1; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                horizontal[row][col] = 1 + this.random.nextInt(colours);
+            }
+        }
+
+        PuzzlePiece[] pieces = new PuzzlePiece[rows * cols];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                int[] faces = {vertical[row][col], horizontal[row][col], vertical[row][col + 1], horizontal[row + 1][col]};
+                PuzzlePiece piece = new PuzzlePiece(0, faces);
+                pieces[row * cols + col] = new PuzzlePiece(0, piece.getFaces(this.random.nextInt(4)));
+            }
+        }
+
+        // Shuffle the pieces and number them in their new order
+        for (int i = pieces.length - 1; i > 0; i--) {
+            int j = this.random.nextInt(i + 1);
+            PuzzlePiece piece = pieces[i];
+            pieces[i] = pieces[j];
+            pieces[j] = piece;
+        }
+        for (int i = 0; i < pieces.length; i++) {
+            pieces[i].setId(i + 1);
+        }
+
+        return new Puzzle(cols, rows, pieces);
+    }
+
+}
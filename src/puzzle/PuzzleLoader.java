@@ -0,0 +1,247 @@
+package puzzle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Loads puzzles in the text format: the number of columns and rows, and then
+ * the four faces of a piece per line. The numbers are parsed straight from the
+ * bytes of the file into an array of faces, without creating a String per
+ * line. They may be separated by any spaces or tabs, and blank lines and
+ * Windows line endings are ignored. Files in the binary format of
+ * BinaryFormat are recognised by their magic number and loaded as well.
+ *
+ * @author jessmann
+ */
+public class PuzzleLoader {
+
+    /**
+     * Size from which files are memory-mapped instead of read into the heap.
+     * Mapping a small file costs more than reading it.
+     */
+    private static final long MAP_THRESHOLD = 1 << 20;
+
+    private final ByteBuffer buffer;
+    private int position;
+    private int line = 1;
+
+    private PuzzleLoader(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.position = buffer.position();
+    }
+
+    /**
+     * Loads a puzzle from a file.
+     *
+     * @param path The path of the file.
+     * @return The loaded puzzle.
+     * @throws PuzzleFormatException If the file is not a valid puzzle.
+     * @throws IOException If the file cannot be read.
+     */
+    public static Puzzle load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large: " + path);
+            }
+            if (size >= MAP_THRESHOLD) {
+                return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the buffer is full or the file ends
+            }
+            buffer.flip();
+            return parse(buffer);
+        }
+    }
+
+    /**
+     * Parses a puzzle from the remaining bytes of a buffer, which must hold
+     * ASCII text or a binary puzzle. The position of the buffer is not
+     * changed.
+     *
+     * @param buffer The buffer.
+     * @return The parsed puzzle.
+     * @throws PuzzleFormatException If the text is not a valid puzzle.
+     */
+    public static Puzzle parse(ByteBuffer buffer) throws PuzzleFormatException {
+        if (BinaryFormat.isBinaryPuzzle(buffer)) {
+            return BinaryFormat.parsePuzzle(buffer);
+        }
+        PuzzleLoader loader = new PuzzleLoader(buffer);
+        int[] faces = loader.parseFaces();
+        int cols = faces[0];
+        int rows = faces[1];
+
+        PuzzlePiece[] pieces = new PuzzlePiece[rows * cols];
+        for (int i = 0; i < pieces.length; i++) {
+            int offset = 2 + 4 * i;
+            pieces[i] = new PuzzlePiece(i + 1, new int[]{faces[offset], faces[offset + 1], faces[offset + 2], faces[offset + 3]});
+        }
+        return new Puzzle(cols, rows, pieces);
+    }
+
+    /**
+     * Reads only the dimensions of a puzzle in the remaining bytes of a
+     * buffer, in the text or binary format, so a puzzle too large to accept
+     * can be refused before it is parsed. The position of the buffer is not
+     * changed.
+     *
+     * @param buffer The buffer.
+     * @return The number of pieces the dimensions call for.
+     * @throws PuzzleFormatException If the dimensions cannot be read.
+     */
+    public static long countPieces(ByteBuffer buffer) throws PuzzleFormatException {
+        if (BinaryFormat.isBinaryPuzzle(buffer)) {
+            ByteBuffer in = buffer.duplicate();
+            BinaryFormat.readHeader(in, BinaryFormat.PUZZLE_MAGIC);
+            return (long) in.getInt() * in.getInt();
+        }
+        PuzzleLoader loader = new PuzzleLoader(buffer);
+        loader.skipBlankLines();
+        int cols = loader.nextInt("the number of columns");
+        int rows = loader.nextInt("the number of rows");
+        return (long) cols * rows;
+    }
+
+    /**
+     * Parses the whole file into one array: the number of columns and rows
+     * followed by the four faces of every piece.
+     */
+    private int[] parseFaces() throws PuzzleFormatException {
+        skipBlankLines();
+        int headerLine = this.line;
+        int cols = nextInt("the number of columns");
+        int rows = nextInt("the number of rows");
+        endOfLine();
+        if (cols < 1 || rows < 1) {
+            throw new PuzzleFormatException("The dimensions must be positive.", headerLine);
+        }
+        int numPieces;
+        try {
+            numPieces = Math.multiplyExact(cols, rows);
+            Math.addExact(Math.multiplyExact(numPieces, 4), 2);
+        } catch (ArithmeticException e) {
+            throw new PuzzleFormatException("The dimensions are too large.", headerLine);
+        }
+
+        // A piece takes at least 7 bytes, so a header cannot make the array
+        // larger than the file; it grows if the pieces are really there
+        int capacity = (int) Math.min(numPieces, (this.buffer.limit() - this.position) / 7 + 1);
+        int[] faces = new int[2 + 4 * capacity];
+        faces[0] = cols;
+        faces[1] = rows;
+        for (int i = 0; i < numPieces; i++) {
+            skipBlankLines();
+            if (this.position == this.buffer.limit()) {
+                throw new PuzzleFormatException("The number of pieces does not fit puzzle dimensions: expected "
+                        + numPieces + ", found " + i + ".", this.line);
+            }
+            if (i == capacity) {
+                capacity = (int) Math.min(numPieces, 2L * capacity);
+                faces = Arrays.copyOf(faces, 2 + 4 * capacity);
+            }
+            int offset = 2 + 4 * i;
+            for (int face = 0; face < 4; face++) {
+                faces[offset + face] = nextInt("4 faces per piece");
+            }
+            endOfLine();
+        }
+
+        skipBlankLines();
+        if (this.position != this.buffer.limit()) {
+            throw new PuzzleFormatException("The number of pieces does not fit puzzle dimensions: expected "
+                    + numPieces + ".", this.line);
+        }
+        return faces;
+    }
+
+    /**
+     * Parses the next integer on the current line.
+     */
+    private int nextInt(String expected) throws PuzzleFormatException {
+        skipSpaces();
+        int limit = this.buffer.limit();
+        boolean negative = this.position < limit && this.buffer.get(this.position) == '-';
+        if (negative) {
+            this.position++;
+        }
+
+        int start = this.position;
+        long value = 0;
+        while (this.position < limit) {
+            int digit = this.buffer.get(this.position) - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE) {
+                throw new PuzzleFormatException("Number too large.", this.line);
+            }
+            this.position++;
+        }
+
+        if (this.position == start) {
+            throw new PuzzleFormatException("Invalid piece format: expected " + expected + ".", this.line);
+        }
+        if (this.position < limit && !isSeparator(this.buffer.get(this.position))) {
+            throw new PuzzleFormatException("Invalid number.", this.line);
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * Checks that nothing else is left on the current line and moves to the
+     * next one.
+     */
+    private void endOfLine() throws PuzzleFormatException {
+        skipSpaces();
+        if (this.position == this.buffer.limit()) {
+            return;
+        }
+        if (this.buffer.get(this.position) != '\n') {
+            throw new PuzzleFormatException("Invalid piece format: unexpected values at the end of the line.", this.line);
+        }
+        this.position++;
+        this.line++;
+    }
+
+    /**
+     * Skips spaces, tabs and carriage returns on the current line.
+     */
+    private void skipSpaces() {
+        int limit = this.buffer.limit();
+        while (this.position < limit) {
+            byte b = this.buffer.get(this.position);
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return;
+            }
+            this.position++;
+        }
+    }
+
+    /**
+     * Skips whitespace, including whole blank lines.
+     */
+    private void skipBlankLines() {
+        int limit = this.buffer.limit();
+        while (this.position < limit) {
+            byte b = this.buffer.get(this.position);
+            if (b == '\n') {
+                this.line++;
+            } else if (b != ' ' && b != '\t' && b != '\r') {
+                return;
+            }
+            this.position++;
+        }
+    }
+
+    private static boolean isSeparator(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+}
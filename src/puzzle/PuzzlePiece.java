@@ -11,6 +11,7 @@ public class PuzzlePiece {
 
     private int id;
     private int faces[];
+    private final int orientations[] = new int[16];
 
     /**
      * Constructor for PuzzlePiece.
@@ -20,7 +21,7 @@ public class PuzzlePiece {
      */
     public PuzzlePiece(int id, int[] faces) {
         this.id = id;
-        this.faces = faces;
+        this.setFaces(faces);
     }
 
     /**
@@ -57,6 +58,37 @@ public class PuzzlePiece {
      */
     public void setFaces(int[] faces) {
         this.faces = faces;
+        if (faces != null) {
+            // Precompute the four orientations so they can be read without rotating
+            for (int rotation = 0; rotation < 4; rotation++) {
+                for (int i = 0; i < 4; i++) {
+                    this.orientations[(rotation << 2) | ((i + rotation) % 4)] = faces[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets a face of the puzzle piece as if it was rotated, without modifying
+     * the piece.
+     *
+     * @param rotation The number of 90º rotations, from 0 to 3.
+     * @param face The index of the face: 0 left, 1 top, 2 right, 3 bottom.
+     * @return The value of the face.
+     */
+    public int getFace(int rotation, int face) {
+        return this.orientations[(rotation << 2) | face];
+    }
+
+    /**
+     * Gets the faces of the puzzle piece as if it was rotated, without
+     * modifying the piece.
+     *
+     * @param rotation The number of 90º rotations, from 0 to 3.
+     * @return A new array representing the rotated faces.
+     */
+    public int[] getFaces(int rotation) {
+        return Arrays.copyOfRange(this.orientations, rotation << 2, (rotation << 2) + 4);
     }
 
     /**
@@ -73,15 +105,7 @@ public class PuzzlePiece {
      * Rotates 90º the puzzle piece.
      */
     public void rotate() {
-        int currentFaces[] = this.getFaces();
-        int[] rotatedFaces = new int[4];
-
-        for (int i = 0; i < 4; i++) {
-            int newIndex = (i + 1) % 4;
-            rotatedFaces[newIndex] = currentFaces[i];
-        }
-
-        this.setFaces(rotatedFaces);
+        this.setFaces(getFaces(1));
     }
 
     /**
@@ -113,9 +137,7 @@ public class PuzzlePiece {
                 throw new AssertionError();
         }
 
-        while (!matchesPattern(this.getFaces(), targetPattern)) {
-            rotate();
-        }
+        rotateToPattern(targetPattern);
     }
 
     /**
@@ -139,9 +161,41 @@ public class PuzzlePiece {
                 throw new AssertionError();
         }
 
-        while (!matchesPattern(this.getFaces(), targetPattern)) {
-            rotate();
+        rotateToPattern(targetPattern);
+    }
+
+    /**
+     * Rotates the puzzle piece to the first orientation that matches the given
+     * pattern. The piece is left unchanged if no orientation matches.
+     *
+     * @param pattern An array representing the pattern.
+     */
+    private void rotateToPattern(int[] pattern) {
+        for (int rotation = 0; rotation < 4; rotation++) {
+            if (matchesPattern(rotation, pattern)) {
+                if (rotation > 0) {
+                    this.setFaces(getFaces(rotation));
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Checks if the faces in the given orientation match the given pattern.
+     *
+     * @param rotation The number of 90º rotations, from 0 to 3.
+     * @param pattern An array representing the pattern.
+     *
+     * @return True if the faces matches the pattern, false otherwise.
+     */
+    private boolean matchesPattern(int rotation, int[] pattern) {
+        for (int i = 0; i < 4; i++) {
+            if (pattern[i] != -1 && getFace(rotation, i) != pattern[i]) {
+                return false;
+            }
         }
+        return true;
     }
 
     /**
@@ -1,8 +1,26 @@
 package puzzle;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A class for solving puzzles.
@@ -11,8 +29,75 @@ import java.util.List;
  */
 public class PuzzleSolver {
 
+    /**
+     * Default number of placements after which parallel tasks stop splitting
+     * the search and run sequentially.
+     */
+    public static final int DEFAULT_SPLIT_DEPTH = 6;
+    /**
+     * Default time between two checkpoints, in milliseconds.
+     */
+    public static final long DEFAULT_CHECKPOINT_INTERVAL = 60000;
+    /**
+     * Number of placements after which a search loop adds its counts to the
+     * metrics.
+     */
+    private static final int METRICS_BATCH = 1 << 16;
+    private static final long[] NO_BACKTRACKS = new long[0];
+    /**
+     * Time the search runs to measure its node rate when estimating, in
+     * milliseconds.
+     */
+    private static final long CALIBRATION_TIME = 1000;
+    /**
+     * Number of prefixes of the search tree made per shard, so the shards
+     * get close amounts of work.
+     */
+    private static final int PREFIXES_PER_SHARD = 64;
+    /**
+     * Longest delay given to the timer. Timer refuses a delay that overflows
+     * the clock, and a longer one never expires anyway.
+     */
+    private static final long MAX_TIMER_DELAY = Long.MAX_VALUE >> 2;
+
     private final Puzzle puzzle;
     private final List<PuzzlePiece[][]> solutions = new ArrayList<>();
+    private SolutionListener solutionListener;
+    private SolutionListener listener;
+    private final Object listenerLock = new Object();
+    private final Object timeoutLock = new Object();
+    private int threads = 1;
+    private int splitDepth = DEFAULT_SPLIT_DEPTH;
+    private SolvingStrategy strategy = SolvingStrategy.ROW_MAJOR;
+    private CellOrder cellOrder;
+    private CellOrder order;
+    private int numCells;
+    private int solutionLimit;
+    private long timeout;
+    private boolean uniqueSolutions;
+    private Set<CanonicalSolution> seen;
+    private Path checkpointFile;
+    private long checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+    private boolean resume;
+    private SolutionCache solutionCache;
+    private PuzzleAnalysis analysis;
+    private int shard = 1;
+    private int shardCount = 1;
+    private DataOutputStream boardsOut;
+    private long boardCount;
+    private int fixedPiece;
+    private boolean fixedSingle;
+    private int topRight;
+    private int bottomLeft;
+    private int bottomRight;
+    private final AtomicInteger solutionCount = new AtomicInteger();
+    private final SearchMetrics metrics = new SearchMetrics();
+    private volatile boolean stopped;
+    private volatile boolean cancelled;
+    private long generation;
+    private volatile boolean checkpointDue;
+    private volatile boolean splitDue;
+    private List<int[]> remainder;
 
     /**
      * Constructs a PuzzleSolver for the specified puzzle.
@@ -24,307 +109,1281 @@ public class PuzzleSolver {
     }
 
     /**
-     * Gets the solutions as a formatted string.
+     * Gets the number of threads used to solve the puzzle.
      *
-     * @return A string representation of the solutions.
+     * @return The number of threads.
      */
-    public String getSolutionsAsString() {
-        StringBuilder result = new StringBuilder();
-        result.append("\nSolution(s):\n");
-        for (PuzzlePiece[][] solution : solutions) {
-            for (PuzzlePiece[] row : solution) {
-                for (PuzzlePiece piece : row) {
-                    result.append(piece != null ? String.format("%-4d", piece.getId()) : "null ");
-                }
-                result.append("\n");
-            }
-            result.append("\n");
+    public int getThreads() {
+        return this.threads;
+    }
+
+    /**
+     * Sets the number of threads used to solve the puzzle. With more than one
+     * thread the search is split into subtrees that run on a ForkJoinPool.
+     *
+     * @param threads The number of threads.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be positive.");
         }
-        return result.toString();
+        this.threads = threads;
     }
 
     /**
-     * Solves the puzzle and stores the solutions.
+     * Gets the number of placements after which parallel tasks stop splitting.
+     *
+     * @return The split depth.
      */
-    public void solve() {
-        solvePuzzle(0, 0, new PuzzlePiece[puzzle.getRows()][puzzle.getCols()], new ArrayList<>());
+    public int getSplitDepth() {
+        return this.splitDepth;
+    }
+
+    /**
+     * Sets the number of placements after which parallel tasks stop splitting
+     * the search and run sequentially.
+     *
+     * @param splitDepth The split depth.
+     */
+    public void setSplitDepth(int splitDepth) {
+        this.splitDepth = splitDepth;
+    }
+
+    /**
+     * Gets the order in which the cells are filled.
+     *
+     * @return The solving strategy.
+     */
+    public SolvingStrategy getStrategy() {
+        return this.strategy;
+    }
+
+    /**
+     * Sets the order in which the cells are filled.
+     *
+     * @param strategy The solving strategy.
+     */
+    public void setStrategy(SolvingStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    /**
+     * Gets the custom policy that chooses the next cell to fill.
+     *
+     * @return The cell order, or null if the strategy chooses the cells.
+     */
+    public CellOrder getCellOrder() {
+        return this.cellOrder;
     }
 
-    // Private helper methods
     /**
-     * Recursive helper method to solve the puzzle.
+     * Sets a custom policy that chooses the next cell to fill, instead of the
+     * order of the strategy.
+     *
+     * @param cellOrder The cell order, or null to use the strategy.
      */
-    private void solvePuzzle(int row, int col, PuzzlePiece[][] currentSolution, List<PuzzlePiece> usedPieces) {
-        int numPieces = this.puzzle.getPieces().length;
+    public void setCellOrder(CellOrder cellOrder) {
+        this.cellOrder = cellOrder;
+    }
+
+    /**
+     * Gets the maximum number of solutions to find.
+     *
+     * @return The solution limit, or 0 if there is no limit.
+     */
+    public int getSolutionLimit() {
+        return this.solutionLimit;
+    }
 
-        // Calculate next row and column
-        int nextRow = row;
-        int nextCol = col + 1;
-        if (nextCol == this.puzzle.getCols()) {
-            nextRow++;
-            nextCol = 0;
+    /**
+     * Sets the maximum number of solutions to find. The search stops as soon
+     * as the limit is reached. With more than one thread the solutions kept
+     * are the first ones found, which are not always the first ones in the
+     * order of the sequential search.
+     *
+     * @param solutionLimit The solution limit, or 0 for no limit.
+     */
+    public void setSolutionLimit(int solutionLimit) {
+        if (solutionLimit < 0) {
+            throw new IllegalArgumentException("The solution limit must not be negative.");
         }
+        this.solutionLimit = solutionLimit;
+    }
 
-        // Base case: If we've placed all the pieces, we found a solution
-        if (usedPieces.size() == numPieces) {
-            // Save the current solution to the solutions array
-            saveSolution(currentSolution);
-            return;
+    /**
+     * Gets the time after which the search is cancelled.
+     *
+     * @return The timeout in milliseconds, or 0 if there is no timeout.
+     */
+    public long getTimeout() {
+        return this.timeout;
+    }
+
+    /**
+     * Sets the time after which the search is cancelled.
+     *
+     * @param timeout The timeout in milliseconds, or 0 for no timeout.
+     */
+    public void setTimeout(long timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("The timeout must not be negative.");
         }
+        this.timeout = timeout;
+    }
 
-        PuzzlePiece[] pieces = this.puzzle.getPieces();
+    /**
+     * Checks if solutions that show the same picture as one already found are
+     * dropped.
+     *
+     * @return True if only unique solutions are kept, false otherwise.
+     */
+    public boolean isUniqueSolutions() {
+        return this.uniqueSolutions;
+    }
 
-        if (row == 0 && col == 0) {
-            // Find fixed top left corner to avoid rotated solutions
-            PuzzlePiece fixedCornerPiece = findFixedCornerPiece(pieces);
+    /**
+     * Sets if solutions that show the same picture as one already found are
+     * dropped: the same solution turned around, or with identical pieces
+     * swapped. The canonical form of every unique solution is kept until the
+     * search ends, and dropped solutions do not count towards the limit.
+     *
+     * @param uniqueSolutions True to keep only unique solutions.
+     */
+    public void setUniqueSolutions(boolean uniqueSolutions) {
+        this.uniqueSolutions = uniqueSolutions;
+    }
 
-            // Add to used pieces
-            usedPieces.add(fixedCornerPiece);
+    /**
+     * Gets the file the checkpoints of the search are written to.
+     *
+     * @return The checkpoint file, or null if no checkpoints are written.
+     */
+    public Path getCheckpointFile() {
+        return this.checkpointFile;
+    }
 
-            // Place the piece in the current solution
-            currentSolution[row][col] = fixedCornerPiece;
+    /**
+     * Sets the file the checkpoints of the search are written to. A
+     * checkpoint holds the position of the search and the number of solutions
+     * found so far, and is written every checkpoint interval and when the
+     * search is stopped. The solutions are appended, as they are found, to a
+     * file of the same name ending in .boards. Both files are deleted once
+     * every branch has been explored. Checkpoints are only written by the
+     * sequential search.
+     *
+     * @param checkpointFile The checkpoint file, or null to write no
+     * checkpoints.
+     */
+    public void setCheckpointFile(Path checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
 
-            // Recursively try to solve the puzzle with the updated solution
-            solvePuzzle(nextRow, nextCol, currentSolution, usedPieces);
-        } else {
-            // Iterate through all pieces and try placing them
-            for (int i = 0; i < numPieces; i++) {
-                PuzzlePiece currentPiece = pieces[i];
+    /**
+     * Gets the time between two checkpoints.
+     *
+     * @return The checkpoint interval in milliseconds.
+     */
+    public long getCheckpointInterval() {
+        return this.checkpointInterval;
+    }
 
-                if (!usedPieces.contains(currentPiece) && tryPiece(row, col, currentPiece, currentSolution)) {
-                    // Add to used pieces
-                    usedPieces.add(currentPiece);
+    /**
+     * Sets the time between two checkpoints.
+     *
+     * @param checkpointInterval The checkpoint interval in milliseconds.
+     */
+    public void setCheckpointInterval(long checkpointInterval) {
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("The checkpoint interval must be positive.");
+        }
+        this.checkpointInterval = checkpointInterval;
+    }
 
-                    // Place the piece in the current solution
-                    currentSolution[row][col] = currentPiece;
+    /**
+     * Checks if the search resumes from the checkpoint file.
+     *
+     * @return True if the search resumes from the checkpoint, false otherwise.
+     */
+    public boolean isResume() {
+        return this.resume;
+    }
 
-                    // Recursively try to solve the puzzle with the updated solution
-                    solvePuzzle(nextRow, nextCol, currentSolution, usedPieces);
+    /**
+     * Sets if the search resumes from the checkpoint file, if it exists. The
+     * solutions found before the checkpoint are handed out again, and the
+     * search continues from the exact position it was written at. The
+     * strategy and the unique solutions setting must be the ones the
+     * checkpoint was written with.
+     *
+     * @param resume True to resume from the checkpoint.
+     */
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
 
-                    // Backtrack: Undo the changes made for backtracking
-                    currentSolution[row][col] = null;
-                    usedPieces.remove(usedPieces.size() - 1);
+    /**
+     * Gets the cache the solutions are looked up in and saved to.
+     *
+     * @return The solution cache, or null if the puzzle is always solved.
+     */
+    public SolutionCache getSolutionCache() {
+        return this.solutionCache;
+    }
 
-                }
-            }
+    /**
+     * Sets a cache the solutions are looked up in before searching, and saved
+     * to when the search explores every branch or stops at the solution limit.
+     * Solutions from the cache are handed out as if found by the search, with
+     * the ids and faces of the pieces of this puzzle, but they come from the
+     * search of any puzzle with the same pieces. They come in another order,
+     * so with a limit they may be other solutions, and a unique solution may
+     * be another copy of its picture: the whole board turned around, or
+     * identical pieces swapped.
+     *
+     * @param solutionCache The solution cache, or null to always solve the
+     * puzzle.
+     */
+    public void setSolutionCache(SolutionCache solutionCache) {
+        this.solutionCache = solutionCache;
+    }
+
+    /**
+     * Gets the shard of the search tree that is searched.
+     *
+     * @return The shard, from 1 to the number of shards.
+     */
+    public int getShard() {
+        return this.shard;
+    }
+
+    /**
+     * Gets the number of shards the search tree is split into.
+     *
+     * @return The number of shards, 1 if the whole tree is searched.
+     */
+    public int getShardCount() {
+        return this.shardCount;
+    }
+
+    /**
+     * Sets the search to explore only one of several shards of the search
+     * tree, so independent processes can share a puzzle with no shared state.
+     * The tree is split depth by depth into prefixes, the candidates placed
+     * in the first cells, until there are 64 per shard; the prefixes are
+     * ranked in search order and dealt to the shards in turn. The split only
+     * depends on the puzzle and the strategy, so the shards together search
+     * the whole tree once. With unique solutions every shard drops only the
+     * copies it finds itself.
+     *
+     * @param shard The shard, from 1 to the number of shards.
+     * @param shardCount The number of shards.
+     */
+    public void setShard(int shard, int shardCount) {
+        if (shardCount < 1 || shard < 1 || shard > shardCount) {
+            throw new IllegalArgumentException("The shard must be from 1 to the number of shards.");
         }
+        this.shard = shard;
+        this.shardCount = shardCount;
     }
 
     /**
-     * Finds a fixed corner piece to start the puzzle solving process.
+     * Gets the checks of the puzzle that solve() runs before searching it.
+     * They are run once, the first time they are needed, and reused
+     * afterwards.
      *
-     * @param pieces The array of puzzle pieces.
-     * @return A corner piece suitable for starting the puzzle.
+     * @return The analysis of the puzzle.
      */
-    private PuzzlePiece findFixedCornerPiece(PuzzlePiece[] pieces) {
-        for (PuzzlePiece piece : pieces) {
-            if (this.puzzle.isOneDimensional()) {
-                if (piece.isLinearCorner()) {
-                    if (this.puzzle.getRows() == 1) {
-                        piece.rotateToCorner("left");
-                    } else {
-                        piece.rotateToCorner("top");
-                    }
-                    return piece;
-                }
-            } else {
-                if (piece.isCorner()) {
-                    piece.rotateToCorner("top-left");
-                    return piece;
-                }
-            }
+    public PuzzleAnalysis getAnalysis() {
+        if (this.analysis == null) {
+            this.analysis = PuzzleAnalysis.of(this.puzzle);
         }
-        return null;
+        return this.analysis;
+    }
+
+    /**
+     * Gets the metrics of the search, which are updated while it runs and
+     * reset when a new search starts. They can be registered as a JMX MBean.
+     *
+     * @return The search metrics.
+     */
+    public SearchMetrics getMetrics() {
+        return this.metrics;
     }
 
     /**
-     * Attempts to place a puzzle piece in the current solution.
+     * Cancels the search. It can be called from any thread; the search stops
+     * at the next placement and solve() returns the solutions found so far.
+     * Called while no search is running, it cancels the next one.
+     */
+    public void cancel() {
+        this.cancelled = true;
+        this.stopped = true;
+    }
+
+    /**
+     * Checks if the search stopped before exploring every branch, because the
+     * solution limit was reached, the timeout expired or it was cancelled.
      *
-     * @param row The row where the piece is being placed.
-     * @param col The column where the piece is being placed.
-     * @param piece The puzzle piece to place.
-     * @param solution The current puzzle solution.
-     * @return True if the piece can be placed, false otherwise.
+     * @return True if the search was stopped, false otherwise.
      */
-    private boolean tryPiece(int row, int col, PuzzlePiece piece, PuzzlePiece[][] solution) {
-        int width = this.puzzle.getCols();
-        int height = this.puzzle.getRows();
+    public boolean isStopped() {
+        return this.stopped;
+    }
 
-        PuzzlePiece topPiece = (row > 0) ? solution[row - 1][col] : null;
-        PuzzlePiece leftPiece = (col > 0) ? solution[row][col - 1] : null;
+    /**
+     * Gets the listener that receives the solutions.
+     *
+     * @return The solution listener, or null if the solutions are stored.
+     */
+    public SolutionListener getSolutionListener() {
+        return this.solutionListener;
+    }
 
-        if (this.puzzle.isOneDimensional()) {
-            // One-dimensional puzzle
-            if (height == 1) {
-                // X linear
-                if (col == 0) {
-                    // Left Corner
-                    if (piece.isLinearCorner()) {
-                        piece.rotateToCorner("left");
-                        return true;
-                    }
-                } else if (col < width - 1) {
-                    // Interior X linear
-                    if (piece.isDoubleEdge()) {
-                        if (leftPiece.getFaces()[2] == piece.getFaces()[0]) {
-                            return true;
-                        }
-                        for (int i = 0; i < 3; i++) {
-                            piece.rotate();
-                            if (leftPiece.getFaces()[2] == piece.getFaces()[0]) {
-                                return true;
-                            }
+    /**
+     * Sets a listener that receives every solution as soon as it is found.
+     * The solutions are then not stored, so memory use does not grow with
+     * their number. With more than one thread the listener is called by one
+     * worker at a time, in the order the solutions are found.
+     *
+     * @param solutionListener The solution listener, or null to store the
+     * solutions.
+     */
+    public void setSolutionListener(SolutionListener solutionListener) {
+        this.solutionListener = solutionListener;
+    }
+
+    /**
+     * Gets the solutions as a formatted string. Solutions sent to a solution
+     * listener are not included.
+     *
+     * @return A string representation of the solutions.
+     */
+    public String getSolutionsAsString() {
+        StringBuilder result = new StringBuilder();
+        result.append("\nSolution(s):\n");
+        for (PuzzlePiece[][] solution : solutions) {
+            result.append(SolutionWriter.format(solution));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Solves the puzzle and stores the solutions. Without a solution limit the
+     * solutions are the same, and in the same order, whatever the number of
+     * threads. With unique solutions only the pictures are the same: which
+     * copy of a picture is kept depends on which thread finds one first. A
+     * puzzle that fails the checks of getAnalysis() is not searched. Every
+     * call starts a new search, without the solutions of the previous one.
+     *
+     * @throws IllegalStateException If checkpoints are written with more than
+     * one thread or for a shard.
+     * @throws UncheckedIOException If the checkpoint or the cached solutions
+     * cannot be read or written.
+     */
+    public void solve() {
+        if (this.checkpointFile != null && this.threads > 1) {
+            throw new IllegalStateException("Checkpoints are only written by the sequential search.");
+        }
+        if (this.checkpointFile != null && this.shardCount > 1) {
+            throw new IllegalStateException("Checkpoints are only written for the whole search tree.");
+        }
+        this.solutions.clear();
+        this.solutionCount.set(0);
+        // Only a cancel() made since the last search stops this one, not the
+        // timeout of a search that already ended
+        long current;
+        synchronized (this.timeoutLock) {
+            current = ++this.generation;
+            this.stopped = this.cancelled;
+        }
+        Board board = new Board(this.puzzle);
+        prepare();
+        this.seen = this.uniqueSolutions ? ConcurrentHashMap.newKeySet() : null;
+        this.boardsOut = null;
+        this.boardCount = 0;
+        this.metrics.start(this.numCells);
+
+        Timer timer = (this.timeout > 0 || this.checkpointFile != null) ? new Timer(true) : null;
+        if (this.timeout > 0) {
+            timer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    // Timer.cancel() does not wait for a task that already
+                    // started, so it must not stop the next search
+                    synchronized (timeoutLock) {
+                        if (generation == current) {
+                            stopped = true;
                         }
                     }
-                } else {
-                    // Right Corner
-                    if (piece.isLinearCorner()) {
-                        piece.rotateToCorner("right");
-                        return true;
-                    }
                 }
-            } else {
-                // Y linear
-                if (row == 0) {
-                    // Top corner
-                    if (piece.isLinearCorner()) {
-                        piece.rotateToCorner("top");
-                        return true;
-                    }
-                } else if (row < height - 1) {
-                    // Interior Y linear
-                    if (piece.isDoubleEdge()) {
-                        if (topPiece.getFaces()[3] == piece.getFaces()[1]) {
-                            return true;
-                        }
-                        for (int i = 0; i < 3; i++) {
-                            piece.rotate();
-                            if (topPiece.getFaces()[3] == piece.getFaces()[1]) {
-                                return true;
-                            }
-                        }
-                    }
-                } else {
-                    // Bottom corner
-                    if (piece.isLinearCorner()) {
-                        piece.rotateToCorner("bottom");
-                        return true;
-                    }
+            }, Math.min(this.timeout, MAX_TIMER_DELAY));
+        }
+        if (this.checkpointFile != null) {
+            long interval = Math.min(this.checkpointInterval, MAX_TIMER_DELAY);
+            timer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    // Written by the search itself, at the next placement
+                    checkpointDue = true;
                 }
+            }, interval, interval);
+        }
+
+        this.listener = this.solutionListener;
+        PuzzleFingerprint fingerprint = null;
+        List<int[]> recorded = null;
+        try {
+            if (!getAnalysis().isFeasible()) {
+                // Counting the pieces and faces already shows there is no solution
+                return;
             }
-        } else {
-            // Square or rectangular puzzle
-            if (row == 0) {
-                // First row
-                if (col == 0) {
-                    // Top Left Corner
-                    if (piece.isCorner()) {
-                        piece.rotateToCorner("top-left");
-                        return true;
+
+            // The cache holds the solutions of whole puzzles, not of shards
+            if (this.solutionCache != null && this.shardCount == 1) {
+                fingerprint = PuzzleFingerprint.of(this.puzzle);
+                List<PuzzlePiece[][]> cached = this.solutionCache.get(fingerprint, this.uniqueSolutions, this.solutionLimit);
+                if (cached != null) {
+                    SolutionListener found = (this.listener != null) ? this.listener : this.solutions::add;
+                    for (PuzzlePiece[][] solution : cached) {
+                        report(solution, found);
                     }
-                } else if (col == width - 1) {
-                    // Top Right Corner
-                    if (piece.isCorner()) {
-                        piece.rotateToCorner("top-right");
-                        if (leftPiece.getFaces()[2] == piece.getFaces()[0]) {
-                            return true;
+                    return;
+                }
+                if (this.listener != null) {
+                    recorded = record(fingerprint, this.listener);
+                }
+            }
+
+            if (this.threads == 1) {
+                SolutionListener found = (this.listener != null) ? this.listener : this.solutions::add;
+                if (this.shardCount > 1) {
+                    for (int[] prefix : shardPrefixes()) {
+                        if (this.stopped) {
+                            break;
                         }
+                        searchPrefix(prefix, found);
                     }
                 } else {
-                    // Top Edge
-                    if (piece.isEdge()) {
-                        piece.rotateToEdge("top");
-                        if (leftPiece.getFaces()[2] == piece.getFaces()[0]) {
-                            return true;
-                        }
+                    SearchStack stack = new SearchStack(this.numCells);
+                    int depth = 0;
+                    if (this.resume && this.checkpointFile != null && Files.exists(this.checkpointFile)) {
+                        depth = restore(stack, board, found);
+                    }
+                    if (this.checkpointFile != null) {
+                        openBoards();
+                    }
+                    search(stack, 0, depth, board, found);
+                    closeBoards();
+                    if (!this.stopped && this.checkpointFile != null) {
+                        // Nothing left to resume
+                        Files.deleteIfExists(this.checkpointFile);
+                        Files.deleteIfExists(Checkpoint.boardsFile(this.checkpointFile));
                     }
                 }
-            } else if (row == height - 1) {
-                // Last row
-                if (col == 0) {
-                    // Bottom Left Corner
-                    if (piece.isCorner()) {
-                        piece.rotateToCorner("bottom-left");
-                        if (topPiece.getFaces()[3] == piece.getFaces()[1]) {
-                            return true;
+            } else {
+                ForkJoinPool pool = new ForkJoinPool(this.threads);
+                try {
+                    if (this.shardCount > 1) {
+                        // One task per prefix of the shard, merged in prefix order
+                        List<ForkJoinTask<List<PuzzlePiece[][]>>> tasks = new ArrayList<>();
+                        for (int[] prefix : shardPrefixes()) {
+                            Board start = new Board(this.puzzle);
+                            placePrefix(prefix, start, null);
+                            tasks.add(pool.submit(new SearchTask(prefix.length, start)));
                         }
-                    }
-                } else if (col == width - 1) {
-                    // Bottom Right Corner
-                    if (piece.isCorner()) {
-                        piece.rotateToCorner("bottom-right");
-                        if (topPiece.getFaces()[3] == piece.getFaces()[1]
-                                && leftPiece.getFaces()[2] == piece.getFaces()[0]) {
-                            return true;
+                        for (ForkJoinTask<List<PuzzlePiece[][]>> task : tasks) {
+                            this.solutions.addAll(task.join());
                         }
+                    } else {
+                        this.solutions.addAll(pool.invoke(new SearchTask(0, board)));
                     }
-                } else {
-                    // Bottom Edge
-                    if (piece.isEdge()) {
-                        piece.rotateToEdge("bottom");
-                        if (topPiece.getFaces()[3] == piece.getFaces()[1]
-                                && leftPiece.getFaces()[2] == piece.getFaces()[0]) {
-                            return true;
-                        }
+                } finally {
+                    pool.shutdown();
+                }
+            }
+
+            if (fingerprint != null && (!this.stopped
+                    || this.solutionLimit > 0 && this.solutionCount.get() >= this.solutionLimit)) {
+                cache(fingerprint, recorded);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            this.metrics.end();
+            if (timer != null) {
+                timer.cancel();
+            }
+            synchronized (this.timeoutLock) {
+                this.generation++;
+                this.cancelled = false;
+            }
+            try {
+                closeBoards();
+            } catch (IOException e) {
+                // Only left open when the search already failed
+            }
+        }
+    }
+
+    /**
+     * Estimates the size of the search tree and the time to search it with
+     * random probes down the tree. The tree is the one solve() explores with
+     * the current strategy or cell order. More probes give a closer estimate;
+     * the search trees of hard puzzles usually need thousands. The node rate
+     * is measured by running the sequential search for a second. The probes
+     * run on a solver of their own, so a search of this solver is not
+     * disturbed.
+     *
+     * @param probes The number of probes.
+     * @param seed The seed of the random choices.
+     * @return The estimate.
+     */
+    public SearchEstimate estimate(int probes, long seed) {
+        if (probes < 1) {
+            throw new IllegalArgumentException("The number of probes must be positive.");
+        }
+        PuzzleSolver prober = new PuzzleSolver(this.puzzle);
+        prober.setStrategy(this.strategy);
+        prober.setCellOrder(this.cellOrder);
+        return prober.probe(probes, seed);
+    }
+
+    // Private helper methods
+    /**
+     * Makes the random probes of estimate() and times the search, on a solver
+     * that does not search.
+     */
+    private SearchEstimate probe(int probes, long seed) {
+        prepare();
+        Random random = new Random(seed);
+        double[] nodesPerDepth = new double[this.numCells + 1];
+        double sum = 0;
+        double sumOfSquares = 0;
+        double solutionSum = 0;
+        for (int probe = 0; probe < probes; probe++) {
+            Board board = new Board(this.puzzle);
+            double weight = 1;
+            double total = 0;
+            nodesPerDepth[0]++;
+            for (int depth = 0; depth < this.numCells; depth++) {
+                int cell = nextCell(depth, board);
+                if (cell < 0) {
+                    break;
+                }
+
+                // Count the fitting candidates and choose one of them at random
+                int count = 0;
+                int chosen = -1;
+                for (int candidate : getCandidates(depth, cell, board)) {
+                    if (canPlace(cell, candidate, board) && random.nextInt(++count) == 0) {
+                        chosen = candidate;
                     }
                 }
-            } else {
-                // Intermediate rows
-                if (col == 0) {
-                    // Left Edge
-                    if (piece.isEdge()) {
-                        piece.rotateToEdge("left");
-                        if (topPiece.getFaces()[3] == piece.getFaces()[1]) {
-                            return true;
-                        }
+                if (count == 0) {
+                    break;
+                }
+                weight *= count;
+                total += weight;
+                nodesPerDepth[depth + 1] += weight;
+                board.place(cell, chosen);
+                if (depth + 1 == this.numCells) {
+                    solutionSum += weight;
+                }
+            }
+            sum += total;
+            sumOfSquares += total * total;
+        }
+
+        for (int depth = 0; depth < nodesPerDepth.length; depth++) {
+            nodesPerDepth[depth] /= probes;
+        }
+        double mean = sum / probes;
+        double variance = (probes > 1) ? Math.max(0, (sumOfSquares - probes * mean * mean) / (probes - 1)) : 0;
+
+        // Time the search itself, as a probe costs more per node than backtracking
+        PuzzleSolver calibration = new PuzzleSolver(this.puzzle);
+        calibration.setStrategy(this.strategy);
+        calibration.setCellOrder(this.cellOrder);
+        calibration.setSolutionListener(solution -> {
+        });
+        calibration.setTimeout(CALIBRATION_TIME);
+        calibration.solve();
+        SearchMetrics calibrated = calibration.getMetrics();
+        double nodeRate = calibrated.getNodes() * 1000.0 / Math.max(1, calibrated.getElapsedMillis());
+        return new SearchEstimate(probes, mean, Math.sqrt(variance / probes), nodesPerDepth,
+                solutionSum / probes, nodeRate, this.puzzle.getColourCounts());
+    }
+
+    /**
+     * Sets up the cell order and the rule against solutions turned half
+     * round, before a search or an estimate.
+     */
+    private void prepare() {
+        int rows = puzzle.getRows();
+        int cols = puzzle.getCols();
+
+        this.order = (this.cellOrder != null) ? this.cellOrder : this.strategy.createCellOrder(rows, cols);
+        this.numCells = rows * cols;
+
+        // A rectangle can only be turned half round, so the fixed corner piece
+        // may also be on the top right corner; squares and strips need no rule
+        int[] fixed = findFixedCornerPiece(this.puzzle.getIndex());
+        boolean rectangle = rows != cols && rows > 1 && cols > 1;
+        this.fixedPiece = (rectangle && fixed.length > 0) ? PieceIndex.pieceOf(fixed[0]) : -1;
+        this.fixedSingle = this.fixedPiece >= 0
+                && this.puzzle.getClasses().getSize(this.puzzle.getClasses().getClassOf(this.fixedPiece)) == 1;
+        this.topRight = cols - 1;
+        this.bottomLeft = (rows - 1) * cols;
+        this.bottomRight = rows * cols - 1;
+    }
+
+    /**
+     * Searches every solution below a partial solution that fills the given
+     * number of cells. The search backtracks with an explicit stack instead
+     * of recursion, so the Java stack does not grow with the puzzle.
+     */
+    private void solvePuzzle(int startDepth, Board board, SolutionListener found) {
+        search(new SearchStack(this.numCells), startDepth, startDepth, board, found);
+    }
+
+    /**
+     * Continues a search from the position held by the stack.
+     *
+     * @param stack The search stack, which holds the cells and cursors of the
+     * depths from the first one up to the current one.
+     * @param startDepth The first depth searched.
+     * @param depth The current depth.
+     * @param board The partial solution, with the candidates of the stack
+     * placed.
+     * @param found The listener of the solutions.
+     */
+    private void search(SearchStack stack, int startDepth, int depth, Board board, SolutionListener found) {
+        int[] cells = stack.cells;
+        int[][] candidates = stack.candidates;
+        int[] cursors = stack.cursors;
+
+        // Counted locally and added to the metrics in batches
+        long nodes = 0;
+        long tried = 0;
+        int maxDepth = depth;
+        long[] backtracks = new long[this.numCells + 1];
+
+        while (depth >= startDepth) {
+            if (this.checkpointDue) {
+                saveCheckpoint(stack, depth);
+            }
+            if (this.stopped) {
+                if (this.boardsOut != null) {
+                    saveCheckpoint(stack, depth);
+                }
+                // Undo the placements still on the board
+                for (int d = Math.min(depth, this.numCells - 1); d >= startDepth; d--) {
+                    if (cursors[d] > 0) {
+                        board.remove(cells[d], candidates[d][cursors[d] - 1]);
                     }
-                } else if (col == width - 1) {
-                    // Right Edge
-                    if (piece.isEdge()) {
-                        piece.rotateToEdge("right");
-                        if (topPiece.getFaces()[3] == piece.getFaces()[1]
-                                && leftPiece.getFaces()[2] == piece.getFaces()[0]) {
-                            return true;
-                        }
+                }
+                this.metrics.add(nodes, tried, maxDepth, backtracks);
+                return;
+            }
+
+            // Base case: If we've filled all the cells, we found a solution
+            if (depth == this.numCells) {
+                reportBoard(board, found);
+                depth--;
+                continue;
+            }
+            if (this.splitDue) {
+                this.splitDue = false;
+                this.remainder = remainder(stack, startDepth, depth);
+                for (int d = depth; d >= startDepth; d--) {
+                    if (cursors[d] > 0) {
+                        board.remove(cells[d], candidates[d][cursors[d] - 1]);
                     }
-                } else {
-                    // Interior
-                    if (piece.isInterior()) {
-                        if (topPiece.getFaces()[3] == piece.getFaces()[1]
-                                && leftPiece.getFaces()[2] == piece.getFaces()[0]) {
-                            return true;
-                        }
-                        for (int i = 0; i < 3; i++) {
-                            piece.rotate();
-                            if (topPiece.getFaces()[3] == piece.getFaces()[1]
-                                    && leftPiece.getFaces()[2] == piece.getFaces()[0]) {
-                                return true;
-                            }
-                        }
+                }
+                this.metrics.add(nodes, tried, maxDepth, backtracks);
+                return;
+            }
+
+            int cursor = cursors[depth];
+            if (cursor == SearchStack.UNVISITED) {
+                // Choose the cell to fill, or backtrack if the order finds a dead end
+                int cell = nextCell(depth, board);
+                if (cell < 0) {
+                    backtracks[depth]++;
+                    depth--;
+                    continue;
+                }
+                cells[depth] = cell;
+                candidates[depth] = getCandidates(depth, cell, board);
+                cursor = 0;
+            } else {
+                // Backtrack: Undo the placement of the last candidate tried
+                board.remove(cells[depth], candidates[depth][cursor - 1]);
+            }
+
+            int cell = cells[depth];
+            int[] list = candidates[depth];
+            int first = cursor;
+            while (cursor < list.length && !canPlace(cell, list[cursor], board)) {
+                cursor++;
+            }
+            if (cursor == list.length) {
+                // Every candidate tried: go back to the previous cell
+                tried += cursor - first;
+                backtracks[depth]++;
+                cursors[depth] = SearchStack.UNVISITED;
+                depth--;
+                continue;
+            }
+
+            // Place the piece in the current solution, in the orientation of the candidate
+            board.place(cell, list[cursor]);
+            cursors[depth] = cursor + 1;
+            depth++;
+            tried += cursor - first + 1;
+            if (depth > maxDepth) {
+                maxDepth = depth;
+            }
+            if (++nodes == METRICS_BATCH) {
+                this.metrics.add(nodes, tried, maxDepth, backtracks);
+                nodes = 0;
+                tried = 0;
+            }
+        }
+        this.metrics.add(nodes, tried, maxDepth, backtracks);
+    }
+
+    /**
+     * Prepares the solver to search prefixes one after another with
+     * searchPrefix(), as the workers of a distributed search do.
+     */
+    void prepareSearch() {
+        prepare();
+        this.seen = this.uniqueSolutions ? ConcurrentHashMap.newKeySet() : null;
+        this.boardsOut = null;
+        this.listener = this.solutionListener;
+        this.metrics.start(this.numCells);
+    }
+
+    /**
+     * Splits the search tree into prefixes, depth by depth, until there are
+     * at least the given number of them or they fill the board.
+     *
+     * @param count The number of prefixes wanted.
+     * @return The prefixes, in search order.
+     */
+    List<int[]> split(int count) {
+        List<int[]> prefixes = List.of(new int[0]);
+        while (!prefixes.isEmpty() && prefixes.size() < count && prefixes.get(0).length < this.numCells) {
+            prefixes = expand(prefixes);
+        }
+        return prefixes;
+    }
+
+    /**
+     * Gets the prefixes of the shard searched: every prefix whose rank in
+     * search order gives the shard, counting from the shard in turn.
+     */
+    private List<int[]> shardPrefixes() {
+        List<int[]> prefixes = split(this.shardCount * PREFIXES_PER_SHARD);
+        List<int[]> owned = new ArrayList<>();
+        for (int i = this.shard - 1; i < prefixes.size(); i += this.shardCount) {
+            owned.add(prefixes.get(i));
+        }
+        return owned;
+    }
+
+    /**
+     * Expands prefixes of the search tree by one depth: every prefix is
+     * replaced by the prefixes that place one more fitting candidate, in the
+     * order the search tries them. Prefixes that fill the board are kept, and
+     * dead ends are dropped.
+     *
+     * @param prefixes The candidates placed at the first depths, in search
+     * order.
+     * @return The expanded prefixes.
+     */
+    List<int[]> expand(List<int[]> prefixes) {
+        List<int[]> expanded = new ArrayList<>();
+        for (int[] prefix : prefixes) {
+            Board board = new Board(this.puzzle);
+            if (!placePrefix(prefix, board, null)) {
+                continue;
+            }
+            int depth = prefix.length;
+            if (depth == this.numCells) {
+                expanded.add(prefix);
+                continue;
+            }
+            int cell = nextCell(depth, board);
+            if (cell < 0) {
+                continue;
+            }
+            for (int candidate : getCandidates(depth, cell, board)) {
+                if (canPlace(cell, candidate, board)) {
+                    int[] next = Arrays.copyOf(prefix, depth + 1);
+                    next[depth] = candidate;
+                    expanded.add(next);
+                }
+            }
+        }
+        return expanded;
+    }
+
+    /**
+     * Searches every solution below a prefix of the search tree. A prefix
+     * that does not fit the puzzle has no solutions. The search can be split
+     * with requestSplit() while it runs.
+     *
+     * @param prefix The candidates placed at the first depths, in search
+     * order.
+     * @param found The listener of the solutions.
+     * @return The prefixes of the branches left unexplored because the search
+     * was split, or an empty list if it explored every branch.
+     */
+    List<int[]> searchPrefix(int[] prefix, SolutionListener found) {
+        // A split asked for before the search starts still applies to it
+        this.remainder = List.of();
+        SearchStack stack = new SearchStack(this.numCells);
+        Board board = new Board(this.puzzle);
+        if (placePrefix(prefix, board, stack)) {
+            search(stack, prefix.length, prefix.length, board, found);
+        }
+        return this.remainder;
+    }
+
+    /**
+     * Asks the search started by searchPrefix() to stop at the next placement
+     * and hand back the branches it has not explored yet.
+     */
+    void requestSplit() {
+        this.splitDue = true;
+    }
+
+    /**
+     * Drops a split asked for too late to stop the search that just ended, so
+     * it does not stop the search of the next prefix.
+     */
+    void cancelSplit() {
+        this.splitDue = false;
+    }
+
+    /**
+     * Places the candidates of a prefix on the board, in the cells the search
+     * would choose for them.
+     *
+     * @param stack The stack to fill with the cells and cursors of the
+     * prefix, or null.
+     * @return True if every candidate could be placed, false otherwise.
+     */
+    private boolean placePrefix(int[] prefix, Board board, SearchStack stack) {
+        for (int depth = 0; depth < prefix.length; depth++) {
+            int cell = (depth < this.numCells) ? nextCell(depth, board) : -1;
+            if (cell < 0) {
+                return false;
+            }
+            int[] candidates = getCandidates(depth, cell, board);
+            int cursor = 0;
+            while (cursor < candidates.length && candidates[cursor] != prefix[depth]) {
+                cursor++;
+            }
+            if (cursor == candidates.length || !canPlace(cell, prefix[depth], board)) {
+                return false;
+            }
+            if (stack != null) {
+                stack.cells[depth] = cell;
+                stack.candidates[depth] = candidates;
+                stack.cursors[depth] = cursor + 1;
+            }
+            board.place(cell, prefix[depth]);
+        }
+        return true;
+    }
+
+    /**
+     * Gets the prefixes of the branches a search has not explored yet: the
+     * candidates not tried at every depth from the first one searched, below
+     * the candidates placed above them. Whether they fit is only checked once
+     * they are searched.
+     */
+    private static List<int[]> remainder(SearchStack stack, int startDepth, int depth) {
+        int[] path = new int[depth];
+        for (int d = 0; d < depth; d++) {
+            path[d] = stack.candidates[d][stack.cursors[d] - 1];
+        }
+
+        List<int[]> remainder = new ArrayList<>();
+        if (stack.cursors[depth] == SearchStack.UNVISITED) {
+            // The cell of the current depth has not even been chosen
+            remainder.add(path);
+        } else {
+            addSiblings(remainder, path, depth, stack.candidates[depth], stack.cursors[depth]);
+        }
+        for (int d = depth - 1; d >= startDepth; d--) {
+            addSiblings(remainder, path, d, stack.candidates[d], stack.cursors[d]);
+        }
+        return remainder;
+    }
+
+    /**
+     * Adds a prefix for every candidate of a depth from a cursor on.
+     */
+    private static void addSiblings(List<int[]> remainder, int[] path, int depth, int[] candidates, int cursor) {
+        for (int i = cursor; i < candidates.length; i++) {
+            int[] prefix = Arrays.copyOf(path, depth + 1);
+            prefix[depth] = candidates[i];
+            remainder.add(prefix);
+        }
+    }
+
+    /**
+     * Hands the solutions of a full board to the listener.
+     */
+    private void reportBoard(Board board, SolutionListener found) {
+        if (this.seen != null && !this.seen.add(CanonicalSolution.of(board, this.puzzle.getClasses()))) {
+            // The same picture as a solution already found
+            return;
+        }
+        if (this.boardsOut != null) {
+            try {
+                boolean wide = BinaryFormat.cellWidth(this.puzzle) == 4;
+                for (int cell = 0; cell < this.numCells; cell++) {
+                    if (wide) {
+                        this.boardsOut.writeInt(board.getCandidate(cell));
+                    } else {
+                        this.boardsOut.writeShort(board.getCandidate(cell));
                     }
                 }
+                this.boardCount++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (this.seen != null) {
+            report(board.toSolution(), found);
+            return;
+        }
+
+        // Every way of giving the cells the identical pieces of their class is a
+        // solution. A cancelled search still hands out all of them, so a
+        // checkpoint never holds a board that was only partly reported
+        PieceClasses classes = this.puzzle.getClasses();
+        int[] pieces = new int[this.numCells];
+        int[] next = new int[this.numCells];
+        boolean[] taken = new boolean[this.puzzle.getPieces().length];
+        int cell = 0;
+        while (cell >= 0 && (this.solutionLimit == 0 || this.solutionCount.get() < this.solutionLimit)) {
+            if (cell == this.numCells) {
+                report(board.toSolution(pieces), found);
+                cell--;
+                continue;
             }
+            int[] members = classes.getMembers(classes.getClassOf(PieceIndex.pieceOf(board.getCandidate(cell))));
+            if (next[cell] > 0) {
+                taken[pieces[cell]] = false;
+            }
+            while (next[cell] < members.length && taken[members[next[cell]]]) {
+                next[cell]++;
+            }
+            if (next[cell] == members.length) {
+                next[cell] = 0;
+                cell--;
+                continue;
+            }
+            pieces[cell] = members[next[cell]++];
+            taken[pieces[cell]] = true;
+            cell++;
+        }
+    }
+
+    /**
+     * Writes a checkpoint of the sequential search at the given depth.
+     */
+    private void saveCheckpoint(SearchStack stack, int depth) {
+        this.checkpointDue = false;
+        try {
+            // The boards counted by the checkpoint must be in the boards file before it
+            this.boardsOut.flush();
+            new Checkpoint(Checkpoint.fingerprint(this.puzzle), strategyCode(), this.uniqueSolutions,
+                    depth, stack.getPosition(0, depth), this.boardCount).write(this.checkpointFile, this.puzzle);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+    }
 
-        return false;
+    /**
+     * Opens the boards file of the checkpoint to append the boards found from
+     * now on. Boards written after the checkpoint that is resumed are cut
+     * off, as the search finds them again.
+     */
+    private void openBoards() throws IOException {
+        FileChannel channel = FileChannel.open(Checkpoint.boardsFile(this.checkpointFile),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        long size = this.boardCount * Checkpoint.boardSize(this.puzzle);
+        channel.truncate(size);
+        channel.position(size);
+        this.boardsOut = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+    }
+
+    /**
+     * Closes the boards file of the checkpoint, if it is open.
+     */
+    private void closeBoards() throws IOException {
+        if (this.boardsOut != null) {
+            DataOutputStream out = this.boardsOut;
+            this.boardsOut = null;
+            out.close();
+        }
     }
 
     /**
-     * Saves a valid puzzle solution to the solutions list.
+     * Restores the position of the search from the checkpoint file, after
+     * handing the solutions found before it to the listener again.
      *
-     * @param currentSolution The current puzzle solution.
+     * @return The depth the search continues at.
      */
-    private void saveSolution(PuzzlePiece[][] currentSolution) {
-        int numRows = currentSolution.length;
-        int numCols = currentSolution[0].length;
+    private int restore(SearchStack stack, Board board, SolutionListener found) throws IOException {
+        Checkpoint checkpoint = Checkpoint.read(this.checkpointFile, this.puzzle);
+        if (checkpoint.getStrategy() != strategyCode() || checkpoint.isUnique() != this.uniqueSolutions) {
+            throw new PuzzleFormatException("The checkpoint was written with other solving options.");
+        }
 
-        PuzzlePiece[][] newSolution = new PuzzlePiece[numRows][numCols];
+        checkpoint.readBoards(this.checkpointFile, this.puzzle, placed -> {
+            for (int cell = 0; cell < this.numCells; cell++) {
+                if (board.isUsed(PieceIndex.pieceOf(placed[cell]))) {
+                    throw new PuzzleFormatException("The checkpoint holds an invalid solution.");
+                }
+                board.place(cell, placed[cell]);
+            }
+            reportBoard(board, found);
+            for (int cell = 0; cell < this.numCells; cell++) {
+                board.remove(cell, placed[cell]);
+            }
+        });
+        this.boardCount = checkpoint.getBoards();
 
-        for (int i = 0; i < numRows; i++) {
-            newSolution[i] = Arrays.copyOf(currentSolution[i], numCols);
+        // Place the candidates of the stack again, as the search chose them
+        int[] position = checkpoint.getPosition();
+        for (int depth = 0; depth < position.length; depth++) {
+            int cursor = position[depth];
+            if (cursor == SearchStack.UNVISITED && depth == checkpoint.getDepth()) {
+                break;
+            }
+            int cell = nextCell(depth, board);
+            int[] candidates = (cell >= 0) ? getCandidates(depth, cell, board) : new int[0];
+            if (cursor < 1 || cursor > candidates.length || !canPlace(cell, candidates[cursor - 1], board)) {
+                throw new PuzzleFormatException("The search position does not fit the puzzle.");
+            }
+            stack.cells[depth] = cell;
+            stack.candidates[depth] = candidates;
+            stack.cursors[depth] = cursor;
+            board.place(cell, candidates[cursor - 1]);
         }
+        return checkpoint.getDepth();
+    }
+
+    /**
+     * Gets the strategy a checkpoint is written with: the ordinal of the
+     * strategy, or -1 for a custom cell order.
+     */
+    private int strategyCode() {
+        return (this.cellOrder != null) ? -1 : this.strategy.ordinal();
+    }
+
+    /**
+     * Wraps the listener so the canonical cells of the solutions are recorded
+     * for the cache, as long as they fit in it.
+     *
+     * @return The list the cells are recorded in.
+     */
+    private List<int[]> record(PuzzleFingerprint fingerprint, SolutionListener target) {
+        List<int[]> recorded = new ArrayList<>();
+        this.listener = solution -> {
+            if (this.solutionCache.fits(recorded.size() + 1, this.numCells)) {
+                recorded.add(fingerprint.encode(solution));
+            }
+            target.onSolution(solution);
+        };
+        return recorded;
+    }
 
-        this.solutions.add(newSolution);
+    /**
+     * Saves the solutions of the search to the cache, if they were all
+     * recorded.
+     *
+     * @param recorded The cells recorded from the listener, or null if the
+     * solutions were stored.
+     */
+    private void cache(PuzzleFingerprint fingerprint, List<int[]> recorded) throws IOException {
+        if (recorded == null) {
+            if (!this.solutionCache.fits(this.solutions.size(), this.numCells)) {
+                return;
+            }
+            recorded = new ArrayList<>(this.solutions.size());
+            for (PuzzlePiece[][] solution : this.solutions) {
+                recorded.add(fingerprint.encode(solution));
+            }
+        }
+        int reported = this.solutionCount.get();
+        if (this.solutionLimit > 0) {
+            reported = Math.min(reported, this.solutionLimit);
+        }
+        if (recorded.size() == reported) {
+            this.solutionCache.put(fingerprint, this.uniqueSolutions, recorded, !this.stopped);
+        }
+    }
+
+    /**
+     * Hands a solution to the listener, unless the solution limit has already
+     * been reached.
+     */
+    private void report(PuzzlePiece[][] solution, SolutionListener found) {
+        int count = this.solutionCount.incrementAndGet();
+        if (this.solutionLimit > 0 && count > this.solutionLimit) {
+            // Another worker reached the limit first
+            return;
+        }
+        found.onSolution(solution);
+        this.metrics.addSolution();
+        if (count == this.solutionLimit) {
+            this.stopped = true;
+        }
+    }
+
+    /**
+     * Chooses the cell to fill at the given depth. The top left corner is
+     * always the first one.
+     */
+    private int nextCell(int depth, Board board) {
+        return (depth == 0) ? 0 : this.order.nextCell(board, depth);
+    }
+
+    /**
+     * Gets the candidates for a cell.
+     *
+     * @param depth The number of pieces already placed.
+     * @param cell The cell to fill.
+     * @param board The partial solution.
+     * @return The packed candidates for the cell.
+     */
+    private int[] getCandidates(int depth, int cell, Board board) {
+        if (depth == 0 && this.fixedPiece < 0) {
+            // Find fixed top left corner to avoid rotated solutions
+            return findFixedCornerPiece(this.puzzle.getIndex());
+        }
+        return board.getCandidates(cell);
+    }
+
+    /**
+     * Checks if a candidate can be placed in a cell: its piece is unused, it
+     * fits the placed neighbours, and it does not give a solution turned half
+     * round from one found in another branch. In a rectangle the fixed corner
+     * piece is either on the top left corner or, if another piece is there,
+     * on the top right one. It can only be kept off the bottom corners if it
+     * has no identical copies.
+     */
+    private boolean canPlace(int cell, int candidate, Board board) {
+        int piece = PieceIndex.pieceOf(candidate);
+        if (board.isUsed(piece)) {
+            return false;
+        }
+        if (this.fixedPiece >= 0 && cell != 0) {
+            if (cell == this.topRight) {
+                if (piece != this.fixedPiece && PieceIndex.pieceOf(board.getCandidate(0)) != this.fixedPiece) {
+                    return false;
+                }
+            } else if (this.fixedSingle && (cell == this.bottomLeft || cell == this.bottomRight) && piece == this.fixedPiece) {
+                return false;
+            }
+        }
+        return board.tryPiece(cell, candidate);
+    }
+
+    /**
+     * Finds a fixed corner piece to start the puzzle solving process.
+     *
+     * A corner piece without identical copies is preferred, as fixing a copy
+     * would still let another copy take the corner in a turned solution.
+     *
+     * @param index The index of the puzzle pieces.
+     * @return An array with the first candidate for the top left corner, or
+     * an empty array if there is none.
+     */
+    private int[] findFixedCornerPiece(PieceIndex index) {
+        int borders = PieceIndex.borderClass(0, 0, this.puzzle.getRows(), this.puzzle.getCols());
+        int[] candidates = index.getCandidates(borders, 0, 0);
+        PieceClasses classes = this.puzzle.getClasses();
+        for (int candidate : candidates) {
+            if (classes.getSize(classes.getClassOf(PieceIndex.pieceOf(candidate))) == 1) {
+                return new int[]{candidate};
+            }
+        }
+        return Arrays.copyOf(candidates, Math.min(1, candidates.length));
+    }
+
+    /**
+     * A task that searches the subtree below a partial solution. Tasks within
+     * the split depth fork one subtask per candidate, so idle workers can
+     * steal uneven branches; deeper tasks search sequentially. Without a
+     * solution listener every task returns its solutions, merged in candidate
+     * order; with one, the solutions are handed to it as they are found.
+     */
+    private class SearchTask extends RecursiveTask<List<PuzzlePiece[][]>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int depth;
+        private final transient Board board;
+
+        SearchTask(int depth, Board board) {
+            this.depth = depth;
+            this.board = board;
+        }
+
+        @Override
+        protected List<PuzzlePiece[][]> compute() {
+            List<PuzzlePiece[][]> found = new ArrayList<>();
+
+            if (stopped || depth == numCells || depth >= splitDepth) {
+                SolutionListener sink = found::add;
+                if (listener != null) {
+                    sink = solution -> {
+                        synchronized (listenerLock) {
+                            listener.onSolution(solution);
+                        }
+                    };
+                }
+                solvePuzzle(depth, board, sink);
+                return found;
+            }
+
+            int cell = nextCell(depth, board);
+            if (cell < 0) {
+                metrics.addBacktrack(depth);
+                return found;
+            }
+
+            List<SearchTask> subtasks = new ArrayList<>();
+            int[] candidates = getCandidates(depth, cell, board);
+            for (int candidate : candidates) {
+                if (canPlace(cell, candidate, board)) {
+                    // Each subtask gets its own copy of the partial solution
+                    Board nextBoard = board.copy();
+                    nextBoard.place(cell, candidate);
+                    subtasks.add(new SearchTask(depth + 1, nextBoard));
+                }
+            }
+            // The cell is left once every subtask has run, as in the sequential search
+            metrics.add(subtasks.size(), candidates.length, subtasks.isEmpty() ? 0 : depth + 1, NO_BACKTRACKS);
+            metrics.addBacktrack(depth);
+
+            // Merge the results in candidate order, as the sequential search does
+            invokeAll(subtasks);
+            for (SearchTask subtask : subtasks) {
+                found.addAll(subtask.join());
+            }
+            return found;
+        }
     }
 
 }
@@ -0,0 +1,690 @@
+package puzzle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The coordinator of a search spread over worker processes, which connect to
+ * it over TCP (see SearchWorker).
+ *
+ * The search tree is split into prefixes: the candidates placed at the first
+ * depths, in search order. Every worker is sent the puzzle and then one
+ * prefix at a time, and searches the subtree below it. The solutions of a
+ * prefix are only kept once the worker reports it done, so the prefix of a
+ * worker that disconnects or goes silent is simply handed to another one.
+ * When a worker is idle and no prefix is left, the worker that has been busy
+ * the longest is asked to split its search: it stops and sends back the
+ * prefixes of the branches it has not explored, which are handed out again.
+ * The same happens when the solutions received reach the solution limit.
+ *
+ * Every message starts with a byte giving its kind. The coordinator sends
+ * the puzzle in the binary format with the solving options, then TASK with
+ * an id and a prefix, and SPLIT with an id. The worker sends SOLUTION with
+ * the task id and the cells of the solution (index * 4 + rotation, as in the
+ * binary solution format), REMAINDER with the prefixes left unexplored, DONE
+ * with the task id and the nodes placed, and HEARTBEAT every second. The
+ * search ends when the coordinator closes the connections.
+ *
+ * @author jessmann
+ */
+public class SearchCoordinator {
+
+    /**
+     * Default number of prefixes the search tree is split into at the start.
+     */
+    public static final int DEFAULT_TASKS = 256;
+    /**
+     * Default time without a message after which a worker is taken as lost,
+     * in milliseconds.
+     */
+    public static final long DEFAULT_WORKER_TIMEOUT = 30000;
+
+    static final int TASK = 'T';
+    static final int SPLIT = 'P';
+    static final int SOLUTION = 'S';
+    static final int REMAINDER = 'R';
+    static final int DONE = 'D';
+    static final int HEARTBEAT = 'H';
+    /**
+     * Time between two heartbeats of a worker, in milliseconds.
+     */
+    static final int HEARTBEAT_INTERVAL = 1000;
+
+    private final Puzzle puzzle;
+    private final List<PuzzlePiece[][]> solutions = new ArrayList<>();
+    private SolutionListener solutionListener;
+    private SolvingStrategy strategy = SolvingStrategy.ROW_MAJOR;
+    private boolean uniqueSolutions;
+    private int solutionLimit;
+    private int tasks = DEFAULT_TASKS;
+    private long workerTimeout = DEFAULT_WORKER_TIMEOUT;
+
+    private ServerSocket server;
+    private final ArrayDeque<int[]> queue = new ArrayDeque<>();
+    private final Map<Connection, Task> running = new LinkedHashMap<>();
+    private final Set<Connection> connections = new HashSet<>();
+    private Set<CanonicalSolution> seen;
+    private int solutionCount;
+    private long nodes;
+    private int splits;
+    private int lostWorkers;
+    private int nextTaskId;
+    private boolean finished;
+    private boolean stopped;
+
+    /**
+     * Constructor for SearchCoordinator.
+     *
+     * @param puzzle The puzzle to be solved.
+     */
+    public SearchCoordinator(Puzzle puzzle) {
+        this.puzzle = puzzle;
+    }
+
+    /**
+     * Gets the order in which the workers fill the cells.
+     *
+     * @return The solving strategy.
+     */
+    public SolvingStrategy getStrategy() {
+        return this.strategy;
+    }
+
+    /**
+     * Sets the order in which the workers fill the cells.
+     *
+     * @param strategy The solving strategy.
+     */
+    public void setStrategy(SolvingStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    /**
+     * Checks if only the solutions that show different pictures are kept.
+     *
+     * @return True if the solutions are unique, false otherwise.
+     */
+    public boolean isUniqueSolutions() {
+        return this.uniqueSolutions;
+    }
+
+    /**
+     * Sets if only the solutions that show different pictures are kept. The
+     * workers drop the ones they have already found, and the coordinator the
+     * ones found by another worker.
+     *
+     * @param uniqueSolutions True to keep only unique solutions.
+     */
+    public void setUniqueSolutions(boolean uniqueSolutions) {
+        this.uniqueSolutions = uniqueSolutions;
+    }
+
+    /**
+     * Gets the maximum number of solutions.
+     *
+     * @return The solution limit, or 0 if there is none.
+     */
+    public int getSolutionLimit() {
+        return this.solutionLimit;
+    }
+
+    /**
+     * Sets the maximum number of solutions. The search stops once that many
+     * have been kept.
+     *
+     * @param solutionLimit The solution limit, or 0 for none.
+     */
+    public void setSolutionLimit(int solutionLimit) {
+        if (solutionLimit < 0) {
+            throw new IllegalArgumentException("The solution limit must not be negative.");
+        }
+        this.solutionLimit = solutionLimit;
+    }
+
+    /**
+     * Gets the number of prefixes the search tree is split into at the start.
+     *
+     * @return The number of tasks.
+     */
+    public int getTasks() {
+        return this.tasks;
+    }
+
+    /**
+     * Sets the number of prefixes the search tree is split into at the start.
+     * The tree is split depth by depth until there are at least that many, so
+     * there may be more. A few per worker are enough, as idle workers get
+     * their work from the busy ones.
+     *
+     * @param tasks The number of tasks.
+     */
+    public void setTasks(int tasks) {
+        if (tasks < 1) {
+            throw new IllegalArgumentException("The number of tasks must be positive.");
+        }
+        this.tasks = tasks;
+    }
+
+    /**
+     * Gets the time without a message after which a worker is taken as lost.
+     *
+     * @return The timeout in milliseconds.
+     */
+    public long getWorkerTimeout() {
+        return this.workerTimeout;
+    }
+
+    /**
+     * Sets the time without a message after which a worker is taken as lost
+     * and its prefix handed to another one. Workers send a heartbeat every
+     * second.
+     *
+     * @param workerTimeout The timeout in milliseconds.
+     */
+    public void setWorkerTimeout(long workerTimeout) {
+        if (workerTimeout <= HEARTBEAT_INTERVAL) {
+            throw new IllegalArgumentException("The worker timeout must be longer than the heartbeat interval.");
+        }
+        this.workerTimeout = workerTimeout;
+    }
+
+    /**
+     * Gets the listener that receives the solutions.
+     *
+     * @return The solution listener, or null if the solutions are stored.
+     */
+    public SolutionListener getSolutionListener() {
+        return this.solutionListener;
+    }
+
+    /**
+     * Sets a listener that receives the solutions of every prefix once its
+     * worker reports it done. It is called by one thread at a time.
+     *
+     * @param solutionListener The solution listener, or null to store the
+     * solutions.
+     */
+    public void setSolutionListener(SolutionListener solutionListener) {
+        this.solutionListener = solutionListener;
+    }
+
+    /**
+     * Gets the stored solutions.
+     *
+     * @return The solutions, or an empty list if they were sent to a listener.
+     */
+    public synchronized List<PuzzlePiece[][]> getSolutions() {
+        return new ArrayList<>(this.solutions);
+    }
+
+    /**
+     * Gets the number of solutions kept.
+     *
+     * @return The number of solutions.
+     */
+    public synchronized int getSolutionCount() {
+        return this.solutionCount;
+    }
+
+    /**
+     * Gets the number of pieces placed by the workers, for the prefixes they
+     * reported done.
+     *
+     * @return The number of nodes.
+     */
+    public synchronized long getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Gets the number of times a busy worker was asked to split its search.
+     *
+     * @return The number of splits.
+     */
+    public synchronized int getSplits() {
+        return this.splits;
+    }
+
+    /**
+     * Gets the number of workers lost while searching a prefix.
+     *
+     * @return The number of lost workers.
+     */
+    public synchronized int getLostWorkers() {
+        return this.lostWorkers;
+    }
+
+    /**
+     * Checks if the search stopped before exploring every branch, because the
+     * solution limit was reached or it was cancelled.
+     *
+     * @return True if the search was stopped, false otherwise.
+     */
+    public synchronized boolean isStopped() {
+        return this.stopped;
+    }
+
+    /**
+     * Splits the search tree and starts accepting workers.
+     *
+     * @param address The address to listen on. Port 0 chooses a free port.
+     * @throws IOException If the server cannot be bound.
+     */
+    public void start(InetSocketAddress address) throws IOException {
+        PuzzleSolver solver = new PuzzleSolver(this.puzzle);
+        solver.setStrategy(this.strategy);
+        solver.setUniqueSolutions(this.uniqueSolutions);
+        solver.prepareSearch();
+        List<int[]> prefixes = solver.split(this.tasks);
+        this.queue.addAll(prefixes);
+        this.seen = this.uniqueSolutions ? new HashSet<>() : null;
+        this.finished = prefixes.isEmpty();
+
+        this.server = new ServerSocket();
+        this.server.bind(address);
+        Thread acceptor = new Thread(this::accept, "coordinator");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Gets the port the coordinator listens on.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        return this.server.getLocalPort();
+    }
+
+    /**
+     * Waits until every prefix has been searched or the solution limit has
+     * been reached, then disconnects the workers.
+     *
+     * @throws InterruptedException If the thread is interrupted while
+     * waiting.
+     */
+    public void solve() throws InterruptedException {
+        synchronized (this) {
+            while (!this.finished) {
+                wait();
+            }
+        }
+        close();
+    }
+
+    /**
+     * Cancels the search. The workers are disconnected and solve() returns
+     * the solutions kept so far.
+     */
+    public void cancel() {
+        synchronized (this) {
+            this.stopped = true;
+            this.finished = true;
+            notifyAll();
+        }
+        close();
+    }
+
+    /**
+     * Accepts workers until the search is finished.
+     */
+    private void accept() {
+        try {
+            while (true) {
+                Socket socket = this.server.accept();
+                Connection connection = new Connection(socket);
+                synchronized (this) {
+                    if (this.finished) {
+                        socket.close();
+                        continue;
+                    }
+                    this.connections.add(connection);
+                }
+                Thread thread = new Thread(connection, "coordinator-" + socket.getRemoteSocketAddress());
+                thread.setDaemon(true);
+                thread.start();
+            }
+        } catch (IOException e) {
+            // The server socket was closed
+        }
+    }
+
+    /**
+     * Stops accepting workers and disconnects them.
+     */
+    private void close() {
+        List<Connection> open;
+        synchronized (this) {
+            open = new ArrayList<>(this.connections);
+            this.connections.clear();
+        }
+        try {
+            this.server.close();
+        } catch (IOException e) {
+            // Nothing more to do with it
+        }
+        for (Connection connection : open) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Takes the next prefix for a worker, and asks a busy worker to split its
+     * search while there is none. The split is sent without holding the lock
+     * of the coordinator, so a slow worker does not hold up the others.
+     *
+     * @return The task, or null if the search is finished.
+     */
+    private Task take(Connection connection) throws InterruptedException {
+        while (true) {
+            Connection target = null;
+            int targetTask = 0;
+            synchronized (this) {
+                if (this.finished) {
+                    return null;
+                }
+                if (!this.queue.isEmpty()) {
+                    Task task = new Task(this.nextTaskId++, this.queue.poll());
+                    this.running.put(connection, task);
+                    return task;
+                }
+                if (this.running.isEmpty()) {
+                    this.finished = true;
+                    notifyAll();
+                    return null;
+                }
+                // Tasks are kept in the order they were taken, so the first one has run the longest
+                for (Map.Entry<Connection, Task> entry : this.running.entrySet()) {
+                    if (!entry.getValue().splitRequested) {
+                        entry.getValue().splitRequested = true;
+                        this.splits++;
+                        target = entry.getKey();
+                        targetTask = entry.getValue().id;
+                        break;
+                    }
+                }
+                if (target == null) {
+                    wait();
+                }
+            }
+            if (target != null) {
+                target.send(SPLIT, targetTask);
+            }
+        }
+    }
+
+    /**
+     * Keeps the solutions of a task reported done, and queues the prefixes
+     * its worker left unexplored.
+     */
+    private synchronized void complete(Connection connection, Task task, long taskNodes) {
+        this.running.remove(connection);
+        if (this.finished) {
+            return;
+        }
+        this.nodes += taskNodes;
+        this.queue.addAll(task.remainder);
+        for (int[] cells : task.solutions) {
+            if (this.seen != null && !this.seen.add(CanonicalSolution.of(toBoard(cells), this.puzzle.getClasses()))) {
+                // Also found by another worker
+                continue;
+            }
+            if (this.solutionListener != null) {
+                this.solutionListener.onSolution(toSolution(cells));
+            } else {
+                this.solutions.add(toSolution(cells));
+            }
+            if (++this.solutionCount == this.solutionLimit) {
+                this.stopped = true;
+                this.finished = true;
+                break;
+            }
+        }
+        notifyAll();
+    }
+
+    /**
+     * Hands the task of a lost worker to the others.
+     */
+    private synchronized void lose(Connection connection) {
+        this.connections.remove(connection);
+        Task task = this.running.remove(connection);
+        if (task != null && !this.finished) {
+            this.lostWorkers++;
+            this.queue.addFirst(task.prefix);
+            notifyAll();
+        }
+    }
+
+    /**
+     * Checks if a solution just received reaches the solution limit, with the
+     * solutions kept so far, and marks the task split if it does and was not
+     * already.
+     *
+     * @return True if the worker must be asked to split the task.
+     */
+    private synchronized boolean splitAtLimit(Task task) {
+        if (task.splitRequested || this.solutionLimit == 0
+                || this.solutionCount + task.solutions.size() < this.solutionLimit) {
+            return false;
+        }
+        task.splitRequested = true;
+        return true;
+    }
+
+    /**
+     * Gets the pieces of a solution from its cells.
+     */
+    private PuzzlePiece[][] toSolution(int[] cells) {
+        PuzzlePiece[] pieces = this.puzzle.getPieces();
+        int cols = this.puzzle.getCols();
+        PuzzlePiece[][] solution = new PuzzlePiece[this.puzzle.getRows()][cols];
+        for (int cell = 0; cell < cells.length; cell++) {
+            PuzzlePiece piece = pieces[PieceIndex.pieceOf(cells[cell])];
+            solution[cell / cols][cell % cols] = new PuzzlePiece(piece.getId(), piece.getFaces(PieceIndex.rotationOf(cells[cell])));
+        }
+        return solution;
+    }
+
+    /**
+     * Places the cells of a solution on a board.
+     */
+    private Board toBoard(int[] cells) {
+        Board board = new Board(this.puzzle);
+        for (int cell = 0; cell < cells.length; cell++) {
+            board.place(cell, cells[cell]);
+        }
+        return board;
+    }
+
+    /**
+     * A prefix being searched by a worker, with the solutions and the
+     * unexplored prefixes it has sent so far.
+     */
+    private static final class Task {
+
+        private final int id;
+        private final int[] prefix;
+        private final List<int[]> solutions = new ArrayList<>();
+        private final List<int[]> remainder = new ArrayList<>();
+        private boolean splitRequested;
+
+        Task(int id, int[] prefix) {
+            this.id = id;
+            this.prefix = prefix;
+        }
+    }
+
+    /**
+     * The connection to a worker, which hands it prefixes until the search is
+     * finished or the worker is lost.
+     */
+    private final class Connection implements Runnable {
+
+        private final Socket socket;
+        private DataOutputStream out;
+
+        Connection(Socket socket) {
+            this.socket = socket;
+        }
+
+        @Override
+        public void run() {
+            try {
+                this.socket.setSoTimeout((int) workerTimeout);
+                this.socket.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(this.socket.getInputStream()));
+                synchronized (this) {
+                    this.out = new DataOutputStream(new BufferedOutputStream(this.socket.getOutputStream()));
+                    sendPuzzle();
+                }
+
+                Task task;
+                while ((task = take(this)) != null) {
+                    synchronized (this) {
+                        this.out.writeByte(TASK);
+                        this.out.writeInt(task.id);
+                        writeCells(this.out, task.prefix);
+                        this.out.flush();
+                    }
+                    receive(in, task);
+                }
+            } catch (IOException | InterruptedException e) {
+                // Lost, or disconnected by close()
+            } finally {
+                lose(this);
+                close();
+            }
+        }
+
+        /**
+         * Reads the messages of the worker until it reports the task done.
+         */
+        private void receive(DataInputStream in, Task task) throws IOException {
+            while (true) {
+                int kind = in.readByte();
+                if (kind == HEARTBEAT) {
+                    continue;
+                }
+                if (in.readInt() != task.id) {
+                    throw new PuzzleFormatException("Message for another task.");
+                }
+                switch (kind) {
+                    case SOLUTION -> {
+                        int[] cells = readCells(in);
+                        checkSolution(cells);
+                        task.solutions.add(cells);
+                        if (splitAtLimit(task)) {
+                            // No need to search the rest of the prefix
+                            send(SPLIT, task.id);
+                        }
+                    }
+                    case REMAINDER -> {
+                        int count = in.readInt();
+                        for (int i = 0; i < count; i++) {
+                            task.remainder.add(readCells(in));
+                        }
+                    }
+                    case DONE -> {
+                        complete(this, task, in.readLong());
+                        return;
+                    }
+                    default ->
+                        throw new PuzzleFormatException("Unknown message: " + kind + ".");
+                }
+            }
+        }
+
+        /**
+         * Checks that a solution uses every piece of the puzzle once.
+         */
+        private void checkSolution(int[] cells) throws PuzzleFormatException {
+            int numPieces = puzzle.getPieces().length;
+            boolean[] used = new boolean[numPieces];
+            if (cells.length != numPieces) {
+                throw new PuzzleFormatException("Invalid solution.");
+            }
+            for (int cell : cells) {
+                int piece = PieceIndex.pieceOf(cell);
+                if (piece < 0 || piece >= numPieces || used[piece]) {
+                    throw new PuzzleFormatException("Invalid solution.");
+                }
+                used[piece] = true;
+            }
+        }
+
+        /**
+         * Sends the puzzle and the solving options.
+         */
+        private void sendPuzzle() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            BinaryFormat.writePuzzle(puzzle, Channels.newChannel(bytes));
+            this.out.writeInt(bytes.size());
+            bytes.writeTo(this.out);
+            this.out.writeByte(strategy.ordinal());
+            this.out.writeBoolean(uniqueSolutions);
+            this.out.flush();
+        }
+
+        /**
+         * Sends a message with a task id, ignoring a worker already lost.
+         */
+        synchronized void send(int kind, int id) {
+            try {
+                this.out.writeByte(kind);
+                this.out.writeInt(id);
+                this.out.flush();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        void close() {
+            try {
+                this.socket.close();
+            } catch (IOException e) {
+                // Nothing more to do with it
+            }
+        }
+    }
+
+    /**
+     * Writes an array of cells, preceded by its length.
+     */
+    static void writeCells(DataOutputStream out, int[] cells) throws IOException {
+        out.writeInt(cells.length);
+        for (int cell : cells) {
+            out.writeInt(cell);
+        }
+    }
+
+    /**
+     * Reads an array of cells, preceded by its length.
+     */
+    static int[] readCells(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > (1 << 24)) {
+            throw new PuzzleFormatException("Invalid number of cells: " + length + ".");
+        }
+        int[] cells = new int[length];
+        for (int i = 0; i < length; i++) {
+            cells[i] = in.readInt();
+        }
+        return cells;
+    }
+}
@@ -0,0 +1,171 @@
+package puzzle;
+
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * An estimate of the size of the search tree of a puzzle, from random probes
+ * down the tree, and of the time needed to search it.
+ *
+ * Every probe chooses one fitting candidate at random at every depth, and
+ * estimates the number of nodes at a depth as the product of the numbers of
+ * fitting candidates of the depths above it (Knuth's estimator). The mean over
+ * the probes is an unbiased estimate of the size of the tree, but its spread
+ * is large on trees with few deep branches, so the standard error is given as
+ * well.
+ *
+ * @author jessmann
+ */
+public class SearchEstimate {
+
+    private final int probes;
+    private final double nodes;
+    private final double standardError;
+    private final double[] nodesPerDepth;
+    private final double solutions;
+    private final double nodeRate;
+    private final SortedMap<Integer, Integer> colourCounts;
+
+    /**
+     * Constructor for SearchEstimate.
+     *
+     * @param probes The number of probes.
+     * @param nodes The estimated number of nodes.
+     * @param standardError The standard error of the number of nodes.
+     * @param nodesPerDepth The estimated number of nodes at every depth.
+     * @param solutions The estimated number of full boards.
+     * @param nodeRate The nodes placed per second by the search.
+     * @param colourCounts The number of faces of every edge colour.
+     */
+    public SearchEstimate(int probes, double nodes, double standardError, double[] nodesPerDepth,
+            double solutions, double nodeRate, SortedMap<Integer, Integer> colourCounts) {
+        this.probes = probes;
+        this.nodes = nodes;
+        this.standardError = standardError;
+        this.nodesPerDepth = nodesPerDepth;
+        this.solutions = solutions;
+        this.nodeRate = nodeRate;
+        this.colourCounts = colourCounts;
+    }
+
+    /**
+     * Gets the number of probes the estimate is made of.
+     *
+     * @return The number of probes.
+     */
+    public int getProbes() {
+        return this.probes;
+    }
+
+    /**
+     * Gets the estimated number of nodes of the search tree: the pieces the
+     * search places before exploring every branch.
+     *
+     * @return The estimated number of nodes.
+     */
+    public double getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Gets the standard error of the estimated number of nodes.
+     *
+     * @return The standard error.
+     */
+    public double getStandardError() {
+        return this.standardError;
+    }
+
+    /**
+     * Gets the estimated number of nodes at every depth.
+     *
+     * @return The estimated number of nodes, from depth 0 (the empty board)
+     * to the number of cells.
+     */
+    public double[] getNodesPerDepth() {
+        return this.nodesPerDepth.clone();
+    }
+
+    /**
+     * Gets the estimated number of full boards, counting the ways to swap
+     * identical pieces once.
+     *
+     * @return The estimated number of solutions.
+     */
+    public double getSolutions() {
+        return this.solutions;
+    }
+
+    /**
+     * Gets the number of nodes the search places per second, measured on
+     * the first part of the search.
+     *
+     * @return The node rate.
+     */
+    public double getNodeRate() {
+        return this.nodeRate;
+    }
+
+    /**
+     * Gets the expected time to explore the whole search tree on one thread.
+     * It is unknown if the search placed no piece while it was timed, as for
+     * a puzzle that fails the checks of PuzzleAnalysis.
+     *
+     * @return The estimated time in milliseconds, or -1 if it is unknown.
+     */
+    public double getEstimatedMillis() {
+        return (this.nodeRate == 0) ? -1 : this.nodes / this.nodeRate * 1000;
+    }
+
+    /**
+     * Gets the number of faces of every edge colour of the puzzle.
+     *
+     * @return The number of faces, by colour.
+     */
+    public SortedMap<Integer, Integer> getColourCounts() {
+        return this.colourCounts;
+    }
+
+    /**
+     * Gets a report of the estimate.
+     *
+     * @return The nodes, solutions and time estimated, and the edge colours.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Nodes: %.3g (standard error %.2g) from %d probes%n",
+                this.nodes, this.standardError, this.probes));
+        sb.append(String.format("Solutions: %.3g%n", this.solutions));
+        if (this.nodeRate == 0) {
+            sb.append(String.format("Time: unknown, the search placed no piece%n"));
+        } else {
+            sb.append(String.format("Time: %s at %.3g nodes/s%n", formatMillis(getEstimatedMillis()), this.nodeRate));
+        }
+        sb.append("Edge colours (colour:faces):");
+        for (Map.Entry<Integer, Integer> entry : this.colourCounts.entrySet()) {
+            sb.append(' ').append(entry.getKey()).append(':').append(entry.getValue());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Formats a time in the largest unit it fits.
+     */
+    private static String formatMillis(double millis) {
+        if (millis < 1000) {
+            return String.format("%.0f ms", millis);
+        }
+        double secs = millis / 1000;
+        if (secs < 3600) {
+            return String.format("%.1f secs", secs);
+        }
+        if (secs < 86400 * 3) {
+            return String.format("%.1f hours", secs / 3600);
+        }
+        if (secs < 86400 * 365) {
+            return String.format("%.1f days", secs / 86400);
+        }
+        return String.format("%.3g years", secs / (86400 * 365));
+    }
+}
@@ -0,0 +1,160 @@
+package puzzle;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of the search of a solver: nodes visited, candidates tried,
+ * backtracks per depth, maximum depth and solutions found.
+ *
+ * Every search loop counts in local variables and adds them here in batches,
+ * to striped counters, so parallel workers do not contend and the counting
+ * is cheap enough to stay enabled. The values may therefore lag behind the
+ * search by a few thousand nodes while it runs.
+ *
+ * @author jessmann
+ */
+public class SearchMetrics implements SearchMetricsMBean {
+
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder tried = new LongAdder();
+    private final LongAdder solutions = new LongAdder();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    private volatile AtomicLongArray backtracks = new AtomicLongArray(1);
+    private volatile long startTime;
+    private volatile long endTime;
+
+    /**
+     * Resets the metrics at the start of a search.
+     *
+     * @param numCells The number of cells of the puzzle.
+     */
+    void start(int numCells) {
+        this.nodes.reset();
+        this.tried.reset();
+        this.solutions.reset();
+        this.maxDepth.set(0);
+        this.backtracks = new AtomicLongArray(numCells + 1);
+        this.endTime = 0;
+        this.startTime = System.nanoTime();
+    }
+
+    /**
+     * Marks the end of a search.
+     */
+    void end() {
+        this.endTime = System.nanoTime();
+    }
+
+    /**
+     * Adds the counts of a search loop.
+     *
+     * @param nodes The pieces placed.
+     * @param tried The candidates tried.
+     * @param depth The deepest depth reached.
+     * @param backtracks The backtracks of every depth, which are cleared.
+     */
+    void add(long nodes, long tried, int depth, long[] backtracks) {
+        this.nodes.add(nodes);
+        this.tried.add(tried);
+        if (depth > this.maxDepth.get()) {
+            this.maxDepth.accumulateAndGet(depth, Math::max);
+        }
+        AtomicLongArray counts = this.backtracks;
+        for (int d = 0; d < backtracks.length; d++) {
+            if (backtracks[d] != 0) {
+                counts.addAndGet(d, backtracks[d]);
+                backtracks[d] = 0;
+            }
+        }
+    }
+
+    /**
+     * Adds a backtrack from a depth.
+     *
+     * @param depth The depth.
+     */
+    void addBacktrack(int depth) {
+        this.backtracks.incrementAndGet(depth);
+    }
+
+    /**
+     * Adds a solution handed to the listener.
+     */
+    void addSolution() {
+        this.solutions.increment();
+    }
+
+    @Override
+    public long getNodes() {
+        return this.nodes.sum();
+    }
+
+    @Override
+    public long getCandidatesTried() {
+        return this.tried.sum();
+    }
+
+    @Override
+    public double getSuccessRate() {
+        long candidates = getCandidatesTried();
+        return (candidates == 0) ? 0 : (double) getNodes() / candidates;
+    }
+
+    @Override
+    public long[] getBacktracks() {
+        AtomicLongArray counts = this.backtracks;
+        long[] result = new long[counts.length()];
+        for (int d = 0; d < result.length; d++) {
+            result[d] = counts.get(d);
+        }
+        return result;
+    }
+
+    @Override
+    public int getMaxDepth() {
+        return this.maxDepth.get();
+    }
+
+    @Override
+    public long getSolutions() {
+        return this.solutions.sum();
+    }
+
+    @Override
+    public double getSolutionsPerSecond() {
+        long millis = getElapsedMillis();
+        return (millis == 0) ? 0 : getSolutions() * 1000.0 / millis;
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        long start = this.startTime;
+        if (start == 0) {
+            return 0;
+        }
+        long end = this.endTime;
+        return ((end != 0 ? end : System.nanoTime()) - start) / 1000000;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.startTime != 0 && this.endTime == 0;
+    }
+
+    /**
+     * Gets a one-line summary of the progress of the search.
+     *
+     * @return The elapsed time, nodes, success rate, depth and solutions.
+     */
+    @Override
+    public String toString() {
+        long millis = getElapsedMillis();
+        long nodeCount = getNodes();
+        return String.format("%.1f s: %d nodes (%.0f/s), %.1f%% of candidates placed, depth %d/%d, %d solutions (%.1f/s)",
+                millis / 1000.0, nodeCount, (millis == 0) ? 0.0 : nodeCount * 1000.0 / millis,
+                getSuccessRate() * 100, getMaxDepth(), this.backtracks.length() - 1,
+                getSolutions(), getSolutionsPerSecond());
+    }
+}
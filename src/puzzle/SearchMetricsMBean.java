@@ -0,0 +1,75 @@
+package puzzle;
+
+/**
+ * The management interface of the metrics of a search, to watch a running
+ * solver through JMX.
+ *
+ * @author jessmann
+ */
+public interface SearchMetricsMBean {
+
+    /**
+     * Gets the number of pieces placed, which are the nodes of the search
+     * tree visited.
+     *
+     * @return The number of nodes.
+     */
+    long getNodes();
+
+    /**
+     * Gets the number of candidates checked against the placed pieces.
+     *
+     * @return The number of candidates tried.
+     */
+    long getCandidatesTried();
+
+    /**
+     * Gets the share of the candidates tried that could be placed.
+     *
+     * @return The success rate, from 0 to 1.
+     */
+    double getSuccessRate();
+
+    /**
+     * Gets the number of times the search went back from every depth, because
+     * its cell had no candidate left.
+     *
+     * @return The backtracks of every depth, from 0 to the number of cells.
+     */
+    long[] getBacktracks();
+
+    /**
+     * Gets the deepest depth reached, which is the number of cells filled.
+     *
+     * @return The maximum depth.
+     */
+    int getMaxDepth();
+
+    /**
+     * Gets the number of solutions found.
+     *
+     * @return The number of solutions.
+     */
+    long getSolutions();
+
+    /**
+     * Gets the number of solutions found per second of search.
+     *
+     * @return The solution rate.
+     */
+    double getSolutionsPerSecond();
+
+    /**
+     * Gets the time spent searching, up to now or to the end of the search.
+     *
+     * @return The elapsed time in milliseconds.
+     */
+    long getElapsedMillis();
+
+    /**
+     * Checks if the search is running.
+     *
+     * @return True if the search has started and not ended, false otherwise.
+     */
+    boolean isRunning();
+}
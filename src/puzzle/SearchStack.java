@@ -0,0 +1,51 @@
+package puzzle;
+
+import java.util.Arrays;
+
+/**
+ * The explicit stack of the backtracking search: for every depth, the cell
+ * being filled, its candidates and the position of the next candidate to
+ * try. Keeping it on the heap instead of the call stack lets the search fill
+ * any number of cells without a deep Java stack, and makes its exact
+ * position available.
+ *
+ * @author jessmann
+ */
+final class SearchStack {
+
+    /**
+     * Cursor of a depth whose cell has not been chosen yet.
+     */
+    static final int UNVISITED = -1;
+
+    final int[] cells;
+    final int[][] candidates;
+    final int[] cursors;
+
+    /**
+     * Constructs an empty stack.
+     *
+     * @param numCells The number of cells of the puzzle.
+     */
+    SearchStack(int numCells) {
+        this.cells = new int[numCells];
+        this.candidates = new int[numCells][];
+        this.cursors = new int[numCells];
+        Arrays.fill(this.cursors, UNVISITED);
+    }
+
+    /**
+     * Gets the position of the search: for every depth from the first one
+     * searched up to and including the current one, the number of candidates
+     * of its cell already tried. The candidate placed at a depth is the last
+     * one tried, and the cursor of a depth whose cell has not been chosen yet
+     * is UNVISITED.
+     *
+     * @param startDepth The first depth searched.
+     * @param depth The current depth.
+     * @return The cursors of the depths, from the first one.
+     */
+    int[] getPosition(int startDepth, int depth) {
+        return Arrays.copyOfRange(this.cursors, startDepth, Math.min(depth + 1, this.cursors.length));
+    }
+}
@@ -0,0 +1,233 @@
+package puzzle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A worker of a distributed search, which connects to a SearchCoordinator and
+ * searches the prefixes it is sent until the coordinator disconnects it.
+ *
+ * @author jessmann
+ */
+public class SearchWorker {
+
+    private final String host;
+    private final int port;
+    private volatile Socket socket;
+    private int tasks;
+
+    /**
+     * Constructor for SearchWorker.
+     *
+     * @param host The host of the coordinator.
+     * @param port The port of the coordinator.
+     */
+    public SearchWorker(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Gets the number of prefixes searched.
+     *
+     * @return The number of tasks.
+     */
+    public synchronized int getTasks() {
+        return this.tasks;
+    }
+
+    /**
+     * Connects to the coordinator and searches the prefixes it sends, until
+     * it closes the connection.
+     *
+     * @throws IOException If the coordinator cannot be reached or sends an
+     * invalid message. Losing the connection later ends the work normally,
+     * as the coordinator hands the prefix being searched to another worker.
+     */
+    public void run() throws IOException {
+        Timer heartbeat = new Timer(true);
+        ExecutorService searches = Executors.newSingleThreadExecutor();
+        PuzzleSolver solver = null;
+        try (Socket connection = new Socket(this.host, this.port)) {
+            this.socket = connection;
+            connection.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            Puzzle puzzle = BinaryFormat.parsePuzzle(ByteBuffer.wrap(bytes));
+            solver = new PuzzleSolver(puzzle);
+            int strategy = in.readByte();
+            if (strategy < 0 || strategy >= SolvingStrategy.values().length) {
+                throw new PuzzleFormatException("Unknown strategy: " + strategy + ".");
+            }
+            solver.setStrategy(SolvingStrategy.values()[strategy]);
+            solver.setUniqueSolutions(in.readBoolean());
+            solver.prepareSearch();
+
+            heartbeat.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    try {
+                        synchronized (out) {
+                            out.writeByte(SearchCoordinator.HEARTBEAT);
+                            out.flush();
+                        }
+                    } catch (IOException e) {
+                        cancel();
+                    }
+                }
+            }, SearchCoordinator.HEARTBEAT_INTERVAL, SearchCoordinator.HEARTBEAT_INTERVAL);
+
+            // Read the messages here, and search on another thread so a split can arrive meanwhile
+            Task current = null;
+            while (true) {
+                int kind = in.readByte();
+                int id = in.readInt();
+                if (kind == SearchCoordinator.TASK) {
+                    current = new Task(id, SearchCoordinator.readCells(in), solver, puzzle, out);
+                    searches.submit(current);
+                } else if (kind == SearchCoordinator.SPLIT) {
+                    if (current != null && current.id == id) {
+                        current.split();
+                    }
+                } else {
+                    throw new PuzzleFormatException("Unknown message: " + kind + ".");
+                }
+            }
+        } catch (IOException e) {
+            if (this.socket == null || e instanceof PuzzleFormatException) {
+                throw e;
+            }
+            // Disconnected by the coordinator, or by stop()
+        } finally {
+            heartbeat.cancel();
+            if (solver != null) {
+                solver.cancel();
+            }
+            searches.shutdownNow();
+        }
+    }
+
+    /**
+     * Disconnects from the coordinator at once, as if the worker was lost.
+     */
+    public void stop() {
+        try {
+            if (this.socket != null) {
+                this.socket.close();
+            }
+        } catch (IOException e) {
+            // Nothing more to do with it
+        }
+    }
+
+    /**
+     * Encodes a solution as the index and rotation of the piece of every
+     * cell.
+     */
+    private static int[] encode(Puzzle puzzle, PuzzlePiece[][] solution) {
+        int[] cells = new int[puzzle.getPieces().length];
+        int cell = 0;
+        for (PuzzlePiece[] row : solution) {
+            for (PuzzlePiece placed : row) {
+                // Pieces of a binary puzzle are numbered from 1
+                int piece = placed.getId() - 1;
+                int rotation = 0;
+                while (!Arrays.equals(puzzle.getPieces()[piece].getFaces(rotation), placed.getFaces())) {
+                    rotation++;
+                }
+                cells[cell++] = PieceIndex.candidate(piece, rotation);
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * The search of a prefix, which sends its solutions as they are found and
+     * reports the prefix done.
+     */
+    private final class Task implements Runnable {
+
+        private final int id;
+        private final int[] prefix;
+        private final PuzzleSolver solver;
+        private final Puzzle puzzle;
+        private final DataOutputStream out;
+        private boolean done;
+
+        Task(int id, int[] prefix, PuzzleSolver solver, Puzzle puzzle, DataOutputStream out) {
+            this.id = id;
+            this.prefix = prefix;
+            this.solver = solver;
+            this.puzzle = puzzle;
+            this.out = out;
+        }
+
+        /**
+         * Asks the search of the prefix to split, unless it has already
+         * ended.
+         */
+        synchronized void split() {
+            if (!this.done) {
+                this.solver.requestSplit();
+            }
+        }
+
+        @Override
+        public void run() {
+            long nodes = this.solver.getMetrics().getNodes();
+            try {
+                List<int[]> remainder = this.solver.searchPrefix(this.prefix, solution -> {
+                    try {
+                        synchronized (this.out) {
+                            this.out.writeByte(SearchCoordinator.SOLUTION);
+                            this.out.writeInt(this.id);
+                            SearchCoordinator.writeCells(this.out, encode(this.puzzle, solution));
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                synchronized (this) {
+                    // A split that came after the search ended is not for the next prefix
+                    this.done = true;
+                    this.solver.cancelSplit();
+                }
+                synchronized (this.out) {
+                    if (!remainder.isEmpty()) {
+                        this.out.writeByte(SearchCoordinator.REMAINDER);
+                        this.out.writeInt(this.id);
+                        this.out.writeInt(remainder.size());
+                        for (int[] next : remainder) {
+                            SearchCoordinator.writeCells(this.out, next);
+                        }
+                    }
+                    this.out.writeByte(SearchCoordinator.DONE);
+                    this.out.writeInt(this.id);
+                    this.out.writeLong(this.solver.getMetrics().getNodes() - nodes);
+                    this.out.flush();
+                }
+                synchronized (SearchWorker.this) {
+                    SearchWorker.this.tasks++;
+                }
+            } catch (IOException | UncheckedIOException e) {
+                // The connection is lost, and the reading thread finds out
+                stop();
+            }
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package puzzle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * A cache of the solutions of puzzles, keyed on their canonical fingerprint,
+ * so a puzzle is solved once whatever the order and rotation its pieces are
+ * given in. Solutions are kept in canonical form and handed back with the ids
+ * and rotations of the pieces of the puzzle they are asked for.
+ *
+ * The cache keeps the results of the most recently used puzzles in memory, up
+ * to a number of bytes, and optionally every result in a directory as
+ * solution files of the canonical puzzle. A result is complete if the search
+ * explored every branch, or partial if it stopped at a solution limit; a
+ * partial result answers the searches with that limit or a lower one.
+ *
+ * A hit answers with solutions of the puzzle asked for, but not always the
+ * ones a search of that puzzle would find: the search of another copy of the
+ * puzzle meets the solutions in another order. So all the solutions come in
+ * another order, and the first solutions up to a limit may be other ones.
+ * Unique solutions show the same pictures, but the copy kept of a picture may
+ * be the whole board turned around, a half turn or for a square puzzle a
+ * quarter turn, or have identical pieces swapped.
+ *
+ * @author jessmann
+ */
+public class SolutionCache {
+
+    /**
+     * Default number of bytes of solutions kept in memory.
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+    /**
+     * Estimated bytes taken by an entry and by a solution besides its cells.
+     */
+    private static final int OVERHEAD = 64;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private Path directory;
+    private long hits;
+    private long misses;
+
+    /**
+     * Constructor for SolutionCache with the default memory size.
+     */
+    public SolutionCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Constructor for SolutionCache.
+     *
+     * @param maxBytes The number of bytes of solutions kept in memory. Results
+     * larger than that are not cached.
+     */
+    public SolutionCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("The size of the cache must not be negative.");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets the number of bytes of solutions kept in memory.
+     *
+     * @return The size of the cache.
+     */
+    public long getMaxBytes() {
+        return this.maxBytes;
+    }
+
+    /**
+     * Gets the directory the results are saved to.
+     *
+     * @return The directory, or null if results are only kept in memory.
+     */
+    public synchronized Path getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Sets a directory the results are saved to, and read from when they are
+     * not in memory. It is created if it does not exist.
+     *
+     * @param directory The directory, or null to keep results only in memory.
+     * @throws IOException If the directory cannot be created.
+     */
+    public synchronized void setDirectory(Path directory) throws IOException {
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        this.directory = directory;
+    }
+
+    /**
+     * Gets the number of lookups answered by the cache.
+     *
+     * @return The number of hits.
+     */
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * Gets the number of lookups the cache could not answer.
+     *
+     * @return The number of misses.
+     */
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Gets the number of bytes of solutions held in memory.
+     *
+     * @return The estimated size of the entries.
+     */
+    public synchronized long getBytes() {
+        return this.bytes;
+    }
+
+    /**
+     * Gets the number of results held in memory.
+     *
+     * @return The number of entries.
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Gets the cached solutions of a puzzle.
+     *
+     * @param puzzle The puzzle.
+     * @param unique True for the unique solutions, false for all of them.
+     * @param limit The most solutions wanted, or 0 for all of them.
+     * @return The solutions, with the pieces of the puzzle, or null if the
+     * cache cannot answer the search. They may differ from the ones a search
+     * of the puzzle finds as the class comment tells.
+     * @throws IOException If a saved result cannot be read.
+     */
+    public List<PuzzlePiece[][]> get(Puzzle puzzle, boolean unique, int limit) throws IOException {
+        return get(PuzzleFingerprint.of(puzzle), unique, limit);
+    }
+
+    /**
+     * Caches the solutions of a puzzle.
+     *
+     * @param puzzle The puzzle.
+     * @param unique True if the solutions are the unique ones.
+     * @param solutions The solutions.
+     * @param complete True if they are all the solutions of the puzzle, false
+     * if the search stopped at a solution limit.
+     * @throws IOException If the result cannot be saved.
+     */
+    public void put(Puzzle puzzle, boolean unique, List<PuzzlePiece[][]> solutions, boolean complete) throws IOException {
+        PuzzleFingerprint fingerprint = PuzzleFingerprint.of(puzzle);
+        List<int[]> cells = new ArrayList<>(solutions.size());
+        for (PuzzlePiece[][] solution : solutions) {
+            cells.add(fingerprint.encode(solution));
+        }
+        put(fingerprint, unique, cells, complete);
+    }
+
+    /**
+     * Gets the cached solutions of the puzzle of a fingerprint.
+     */
+    List<PuzzlePiece[][]> get(PuzzleFingerprint fingerprint, boolean unique, int limit) throws IOException {
+        String key = key(fingerprint, unique);
+        Entry entry;
+        Path directory;
+        synchronized (this) {
+            entry = this.entries.get(key);
+            directory = this.directory;
+        }
+        if (entry == null && directory != null) {
+            entry = load(directory, key, fingerprint);
+            if (entry != null) {
+                synchronized (this) {
+                    add(key, entry);
+                }
+            }
+        }
+
+        boolean hit = entry != null && (entry.complete || (limit > 0 && entry.cells.size() >= limit));
+        synchronized (this) {
+            if (hit) {
+                this.hits++;
+            } else {
+                this.misses++;
+            }
+        }
+        if (!hit) {
+            return null;
+        }
+
+        int count = (limit > 0) ? Math.min(limit, entry.cells.size()) : entry.cells.size();
+        List<PuzzlePiece[][]> solutions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            solutions.add(fingerprint.decode(entry.cells.get(i)));
+        }
+        return solutions;
+    }
+
+    /**
+     * Caches the canonical cells of the solutions of the puzzle of a
+     * fingerprint, unless a result that answers more searches is cached.
+     */
+    void put(PuzzleFingerprint fingerprint, boolean unique, List<int[]> cells, boolean complete) throws IOException {
+        String key = key(fingerprint, unique);
+        Entry entry = new Entry(List.copyOf(cells), complete);
+        Path directory;
+        synchronized (this) {
+            Entry cached = this.entries.get(key);
+            if (cached != null && (cached.complete || !complete && cached.cells.size() >= cells.size())) {
+                return;
+            }
+            add(key, entry);
+            directory = this.directory;
+        }
+        if (directory != null) {
+            save(directory, key, fingerprint, entry);
+        }
+    }
+
+    /**
+     * Checks if a number of solutions of a puzzle fits in the cache.
+     */
+    boolean fits(int solutions, int numCells) {
+        return size(solutions, numCells) <= this.maxBytes;
+    }
+
+    /**
+     * Adds an entry to the memory, and evicts the least recently used ones
+     * until the entries fit.
+     */
+    private void add(String key, Entry entry) {
+        Entry previous = this.entries.remove(key);
+        if (previous != null) {
+            this.bytes -= previous.bytes;
+        }
+        if (entry.bytes > this.maxBytes) {
+            return;
+        }
+        this.entries.put(key, entry);
+        this.bytes += entry.bytes;
+        Iterator<Entry> eldest = this.entries.values().iterator();
+        while (this.bytes > this.maxBytes) {
+            this.bytes -= eldest.next().bytes;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Reads a saved result, complete or partial.
+     *
+     * @return The entry, or null if none is saved.
+     */
+    private static Entry load(Path directory, String key, PuzzleFingerprint fingerprint) throws IOException {
+        Puzzle canonical = fingerprint.getCanonicalPuzzle();
+        Path complete = directory.resolve(key + ".pzs");
+        Path partial = directory.resolve(key + "-partial.pzs");
+        Path path = Files.exists(complete) ? complete : Files.exists(partial) ? partial : null;
+        if (path == null) {
+            return null;
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+        int width = BinaryFormat.readHeader(in, BinaryFormat.SOLUTION_MAGIC);
+        int numCells = canonical.getPieces().length;
+        if (in.getInt() != canonical.getCols() || in.getInt() != canonical.getRows()
+                || width != BinaryFormat.cellWidth(canonical) || in.remaining() % (numCells * width) != 0) {
+            throw new PuzzleFormatException("The cached solutions in " + path + " do not fit the puzzle.");
+        }
+        List<int[]> cells = new ArrayList<>();
+        while (in.hasRemaining()) {
+            int[] solution = new int[numCells];
+            for (int cell = 0; cell < numCells; cell++) {
+                solution[cell] = (width == 2) ? in.getShort() & 0xFFFF : in.getInt();
+            }
+            cells.add(solution);
+        }
+        return new Entry(cells, path == complete);
+    }
+
+    /**
+     * Saves a result as a solution file of the canonical puzzle, through a
+     * temporary file so readers never see it half written.
+     */
+    private static void save(Path directory, String key, PuzzleFingerprint fingerprint, Entry entry) throws IOException {
+        Puzzle canonical = fingerprint.getCanonicalPuzzle();
+        int width = BinaryFormat.cellWidth(canonical);
+        int numCells = canonical.getPieces().length;
+        Path path = directory.resolve(key + (entry.complete ? ".pzs" : "-partial.pzs"));
+        if (!entry.complete && Files.exists(path)
+                && Files.size(path) >= BinaryFormat.HEADER_SIZE + (long) entry.cells.size() * numCells * width) {
+            return;
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(BinaryFormat.HEADER_SIZE + entry.cells.size() * numCells * width);
+        BinaryFormat.writeHeader(out, BinaryFormat.SOLUTION_MAGIC, width, canonical.getCols(), canonical.getRows());
+        for (int[] solution : entry.cells) {
+            for (int cell : solution) {
+                if (width == 2) {
+                    out.putShort((short) cell);
+                } else {
+                    out.putInt(cell);
+                }
+            }
+        }
+        out.flip();
+
+        Path temp = Files.createTempFile(directory, key, ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                BinaryFormat.writeFully(channel, out);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        if (entry.complete) {
+            Files.deleteIfExists(directory.resolve(key + "-partial.pzs"));
+        }
+    }
+
+    private static String key(PuzzleFingerprint fingerprint, boolean unique) {
+        return fingerprint.getDigest() + (unique ? "-unique" : "-all");
+    }
+
+    private static long size(int solutions, int numCells) {
+        return OVERHEAD + (long) solutions * (OVERHEAD + numCells * 4L);
+    }
+
+    /**
+     * The canonical cells of the solutions found by a search, and whether the
+     * search explored every branch.
+     */
+    private static final class Entry {
+
+        private final List<int[]> cells;
+        private final boolean complete;
+        private final long bytes;
+
+        Entry(List<int[]> cells, boolean complete) {
+            this.cells = cells;
+            this.complete = complete;
+            this.bytes = cells.isEmpty() ? OVERHEAD : size(cells.size(), cells.get(0).length);
+        }
+    }
+}
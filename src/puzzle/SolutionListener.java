@@ -0,0 +1,19 @@
+package puzzle;
+
+/**
+ * Receives the solutions of a puzzle as soon as the solver finds them.
+ *
+ * @author jessmann
+ */
+@FunctionalInterface
+public interface SolutionListener {
+
+    /**
+     * Called for every solution found. The solution is a new array with a copy
+     * of every piece in its orientation, so it can be kept by the listener.
+     *
+     * @param solution The pieces of the solution, by row and column.
+     */
+    void onSolution(PuzzlePiece[][] solution);
+
+}
@@ -0,0 +1,103 @@
+package puzzle;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Merges the binary solution files of the shards of a puzzle, written by
+ * separate searches with PuzzleSolver.setShard(), into one stream of
+ * solutions.
+ *
+ * @author jessmann
+ */
+public class SolutionMerger {
+
+    private final Puzzle puzzle;
+    private boolean uniqueSolutions;
+
+    /**
+     * Constructor for SolutionMerger.
+     *
+     * @param puzzle The puzzle whose solutions are merged.
+     */
+    public SolutionMerger(Puzzle puzzle) {
+        this.puzzle = puzzle;
+    }
+
+    /**
+     * Checks if solutions that show the same picture as one already merged
+     * are dropped.
+     *
+     * @return True if only unique solutions are kept, false otherwise.
+     */
+    public boolean isUniqueSolutions() {
+        return this.uniqueSolutions;
+    }
+
+    /**
+     * Sets if solutions that show the same picture as one already merged are
+     * dropped. Shards searched for unique solutions only drop the copies they
+     * find themselves, so their files are merged with this set.
+     *
+     * @param uniqueSolutions True to keep only unique solutions.
+     */
+    public void setUniqueSolutions(boolean uniqueSolutions) {
+        this.uniqueSolutions = uniqueSolutions;
+    }
+
+    /**
+     * Reads the solutions of every file, in order, and hands them to a
+     * listener.
+     *
+     * @param files The solution files of the shards.
+     * @param found The listener of the merged solutions.
+     * @return The number of solutions handed to the listener.
+     * @throws PuzzleFormatException If a file does not hold solutions of the
+     * puzzle.
+     * @throws IOException If an I/O error occurs.
+     */
+    public long merge(List<Path> files, SolutionListener found) throws IOException {
+        Set<CanonicalSolution> seen = this.uniqueSolutions ? new HashSet<>() : null;
+        long count = 0;
+        for (Path file : files) {
+            try (BinarySolutionReader reader = new BinarySolutionReader(this.puzzle, FileChannel.open(file, StandardOpenOption.READ))) {
+                PuzzlePiece[][] solution;
+                while ((solution = reader.next()) != null) {
+                    if (seen != null && !seen.add(CanonicalSolution.of(toBoard(solution), this.puzzle.getClasses()))) {
+                        continue;
+                    }
+                    found.onSolution(solution);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Places the pieces of a solution read from a file on a board.
+     */
+    private Board toBoard(PuzzlePiece[][] solution) {
+        Board board = new Board(this.puzzle);
+        PuzzlePiece[] pieces = this.puzzle.getPieces();
+        int cell = 0;
+        for (PuzzlePiece[] row : solution) {
+            for (PuzzlePiece placed : row) {
+                // The reader numbers the pieces from 1, in puzzle order
+                int piece = placed.getId() - 1;
+                int rotation = 0;
+                while (!Arrays.equals(pieces[piece].getFaces(rotation), placed.getFaces())) {
+                    rotation++;
+                }
+                board.place(cell++, PieceIndex.candidate(piece, rotation));
+            }
+        }
+        return board;
+    }
+}
@@ -0,0 +1,74 @@
+package puzzle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * A solution listener that writes every solution to a writer as soon as it
+ * is found, in the same format as PuzzleSolver.getSolutionsAsString().
+ *
+ * @author jessmann
+ */
+public class SolutionWriter implements SolutionListener {
+
+    private final Writer writer;
+    private final boolean autoFlush;
+
+    /**
+     * Constructor for SolutionWriter.
+     *
+     * @param writer The writer the solutions are written to.
+     */
+    public SolutionWriter(Writer writer) {
+        this(writer, false);
+    }
+
+    /**
+     * Constructor for SolutionWriter.
+     *
+     * @param writer The writer the solutions are written to.
+     * @param autoFlush True to flush the writer after every solution, so they
+     * can be read while the search goes on.
+     */
+    public SolutionWriter(Writer writer, boolean autoFlush) {
+        this.writer = writer;
+        this.autoFlush = autoFlush;
+    }
+
+    /**
+     * Writes a solution followed by a blank line.
+     *
+     * @param solution The pieces of the solution, by row and column.
+     */
+    @Override
+    public void onSolution(PuzzlePiece[][] solution) {
+        try {
+            this.writer.write(format(solution));
+            if (this.autoFlush) {
+                this.writer.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns a String representing a solution followed by a blank line.
+     *
+     * @param solution The pieces of the solution, by row and column.
+     * @return A String with a row of piece ids per line.
+     */
+    public static String format(PuzzlePiece[][] solution) {
+        StringBuilder result = new StringBuilder();
+        for (PuzzlePiece[] row : solution) {
+            for (PuzzlePiece piece : row) {
+                result.append(piece != null ? String.format("%-4d", piece.getId()) : "null ");
+            }
+            result.append("\n");
+        }
+        result.append("\n");
+        return result.toString();
+    }
+
+}
@@ -0,0 +1,458 @@
+package puzzle;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A long-running HTTP service that solves puzzles, so every request only
+ * pays for its search and not for starting a JVM and warming up the JIT.
+ *
+ * POST /solve takes a puzzle in the text or binary format as the body, and
+ * the limit, timeout (in seconds), strategy and unique options of Solve as
+ * query parameters. It answers with JSON: the dimensions, the number of
+ * solutions, whether the search explored every branch, the time in
+ * milliseconds and the solutions, as rows of pieces with their id and faces
+ * in their orientation. GET /health answers with the number of searches
+ * running and queued, and the hits and misses of the solution cache. A
+ * puzzle with more pieces than the maximum is refused with 413 from its
+ * dimensions alone, before its pieces are parsed.
+ *
+ * The connections are handled on virtual threads when the JVM provides them,
+ * and the searches run on a fixed pool of workers with a bounded queue. A
+ * request that finds the queue full is answered at once with 503, instead of
+ * waiting for a worker.
+ *
+ * @author jessmann
+ */
+public class SolveServer {
+
+    /**
+     * Default maximum number of solutions returned for a puzzle.
+     */
+    public static final int DEFAULT_SOLUTION_LIMIT = 100;
+    /**
+     * Default maximum time a search runs, in milliseconds.
+     */
+    public static final long DEFAULT_TIMEOUT = 60000;
+    /**
+     * Default maximum number of pieces of a puzzle.
+     */
+    public static final int DEFAULT_MAX_PIECES = 1 << 16;
+    /**
+     * Largest request body accepted.
+     */
+    private static final int MAX_BODY = 16 << 20;
+
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private int queueSize = Runtime.getRuntime().availableProcessors();
+    private int solutionLimit = DEFAULT_SOLUTION_LIMIT;
+    private long timeout = DEFAULT_TIMEOUT;
+    private int maxPieces = DEFAULT_MAX_PIECES;
+    private SolutionCache solutionCache;
+    private HttpServer server;
+    private ExecutorService connections;
+    private ThreadPoolExecutor searches;
+
+    /**
+     * Gets the number of searches that run at a time.
+     *
+     * @return The number of workers.
+     */
+    public int getWorkers() {
+        return this.workers;
+    }
+
+    /**
+     * Sets the number of searches that run at a time. Every search runs on a
+     * single thread.
+     *
+     * @param workers The number of workers.
+     */
+    public void setWorkers(int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("The number of workers must be positive.");
+        }
+        this.workers = workers;
+    }
+
+    /**
+     * Gets the number of searches that can wait for a worker.
+     *
+     * @return The queue size.
+     */
+    public int getQueueSize() {
+        return this.queueSize;
+    }
+
+    /**
+     * Sets the number of searches that can wait for a worker. Requests beyond
+     * it are refused with 503.
+     *
+     * @param queueSize The queue size, or 0 to refuse every request while
+     * all workers are busy.
+     */
+    public void setQueueSize(int queueSize) {
+        if (queueSize < 0) {
+            throw new IllegalArgumentException("The queue size must not be negative.");
+        }
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Gets the maximum number of solutions returned for a puzzle.
+     *
+     * @return The solution limit.
+     */
+    public int getSolutionLimit() {
+        return this.solutionLimit;
+    }
+
+    /**
+     * Sets the maximum number of solutions returned for a puzzle. A request
+     * can ask for fewer.
+     *
+     * @param solutionLimit The solution limit.
+     */
+    public void setSolutionLimit(int solutionLimit) {
+        if (solutionLimit < 1) {
+            throw new IllegalArgumentException("The solution limit must be positive.");
+        }
+        this.solutionLimit = solutionLimit;
+    }
+
+    /**
+     * Gets the maximum time a search runs.
+     *
+     * @return The timeout in milliseconds.
+     */
+    public long getTimeout() {
+        return this.timeout;
+    }
+
+    /**
+     * Sets the maximum time a search runs. A request can ask for less.
+     *
+     * @param timeout The timeout in milliseconds.
+     */
+    public void setTimeout(long timeout) {
+        if (timeout < 1) {
+            throw new IllegalArgumentException("The timeout must be positive.");
+        }
+        this.timeout = timeout;
+    }
+
+    /**
+     * Gets the maximum number of pieces of a puzzle.
+     *
+     * @return The maximum number of pieces.
+     */
+    public int getMaxPieces() {
+        return this.maxPieces;
+    }
+
+    /**
+     * Sets the maximum number of pieces of a puzzle. Larger puzzles are
+     * refused with 413 from their dimensions, before the pieces are parsed.
+     *
+     * @param maxPieces The maximum number of pieces.
+     */
+    public void setMaxPieces(int maxPieces) {
+        if (maxPieces < 1) {
+            throw new IllegalArgumentException("The maximum number of pieces must be positive.");
+        }
+        this.maxPieces = maxPieces;
+    }
+
+    /**
+     * Gets the cache shared by the searches.
+     *
+     * @return The solution cache, or null if every puzzle is solved.
+     */
+    public SolutionCache getSolutionCache() {
+        return this.solutionCache;
+    }
+
+    /**
+     * Sets a cache shared by the searches, so a puzzle sent again, with its
+     * pieces in any order and rotation, is answered without searching.
+     *
+     * @param solutionCache The solution cache, or null to solve every puzzle.
+     */
+    public void setSolutionCache(SolutionCache solutionCache) {
+        this.solutionCache = solutionCache;
+    }
+
+    /**
+     * Starts the service.
+     *
+     * @param address The address to listen on. Port 0 chooses a free port.
+     * @throws IOException If the server cannot be bound.
+     */
+    public void start(InetSocketAddress address) throws IOException {
+        BlockingQueue<Runnable> queue = (this.queueSize > 0) ? new ArrayBlockingQueue<>(this.queueSize) : new SynchronousQueue<>();
+        this.searches = new ThreadPoolExecutor(this.workers, this.workers, 0, TimeUnit.MILLISECONDS,
+                queue, new ThreadPoolExecutor.AbortPolicy());
+        this.connections = newConnectionExecutor();
+        this.server = HttpServer.create(address, 0);
+        this.server.setExecutor(this.connections);
+        this.server.createContext("/solve", this::handleSolve);
+        this.server.createContext("/health", this::handleHealth);
+        this.server.start();
+    }
+
+    /**
+     * Gets the port the service listens on.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        return this.server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the service. Running searches are cancelled.
+     */
+    public void stop() {
+        this.server.stop(0);
+        this.searches.shutdownNow();
+        this.connections.shutdownNow();
+    }
+
+    /**
+     * Creates the executor of the connections: a virtual thread per task on
+     * Java 21, or on Java 19 and 20 run with --enable-preview, and a cached
+     * pool of platform threads otherwise.
+     */
+    private static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Handles a request to solve a puzzle.
+     */
+    private void handleSolve(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                sendError(exchange, 405, "Use POST with the puzzle as the body.");
+                return;
+            }
+
+            ByteBuffer body = readBody(exchange);
+            if (body == null) {
+                sendError(exchange, 413, "The puzzle is larger than " + MAX_BODY + " bytes.");
+                return;
+            }
+            Puzzle puzzle;
+            PuzzleSolver solver;
+            try {
+                if (PuzzleLoader.countPieces(body) > this.maxPieces) {
+                    sendError(exchange, 413, "The puzzle has more than " + this.maxPieces + " pieces.");
+                    return;
+                }
+                puzzle = PuzzleLoader.parse(body);
+                solver = createSolver(puzzle, exchange.getRequestURI().getRawQuery());
+            } catch (PuzzleFormatException | IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+                return;
+            }
+
+            List<PuzzlePiece[][]> solutions = new ArrayList<>();
+            solver.setSolutionListener(solutions::add);
+            long start = System.nanoTime();
+            Future<?> search;
+            try {
+                search = this.searches.submit(solver::solve);
+            } catch (RejectedExecutionException e) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendError(exchange, 503, "Every worker is busy.");
+                return;
+            }
+            try {
+                search.get();
+            } catch (InterruptedException e) {
+                solver.cancel();
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                sendError(exchange, 500, String.valueOf(e.getCause()));
+                return;
+            }
+            long millis = (System.nanoTime() - start) / 1000000;
+
+            StringBuilder json = new StringBuilder();
+            json.append("{\"cols\":").append(puzzle.getCols())
+                    .append(",\"rows\":").append(puzzle.getRows())
+                    .append(",\"count\":").append(solutions.size())
+                    .append(",\"complete\":").append(!solver.isStopped())
+                    .append(",\"millis\":").append(millis)
+                    .append(",\"solutions\":[");
+            for (int i = 0; i < solutions.size(); i++) {
+                appendSolution(json.append(i > 0 ? "," : ""), solutions.get(i));
+            }
+            json.append("]}");
+            send(exchange, 200, json.toString());
+        }
+    }
+
+    /**
+     * Handles a request for the state of the workers.
+     */
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            StringBuilder json = new StringBuilder();
+            json.append("{\"workers\":").append(this.workers)
+                    .append(",\"active\":").append(this.searches.getActiveCount())
+                    .append(",\"queued\":").append(this.searches.getQueue().size());
+            if (this.solutionCache != null) {
+                json.append(",\"cacheHits\":").append(this.solutionCache.getHits())
+                        .append(",\"cacheMisses\":").append(this.solutionCache.getMisses());
+            }
+            send(exchange, 200, json.append('}').toString());
+        }
+    }
+
+    /**
+     * Reads the body of a request.
+     *
+     * @return The body, or null if it is larger than MAX_BODY.
+     */
+    private static ByteBuffer readBody(HttpExchange exchange) throws IOException {
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes(MAX_BODY + 1);
+        }
+        return (body.length > MAX_BODY) ? null : ByteBuffer.wrap(body);
+    }
+
+    /**
+     * Creates a solver for a puzzle with the options of a request.
+     */
+    private PuzzleSolver createSolver(Puzzle puzzle, String query) {
+        PuzzleSolver solver = new PuzzleSolver(puzzle);
+        solver.setSolutionLimit(this.solutionLimit);
+        solver.setTimeout(this.timeout);
+        solver.setSolutionCache(this.solutionCache);
+
+        Map<String, String> options = parseQuery(query);
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            String value = option.getValue();
+            switch (option.getKey()) {
+                case "limit" ->
+                    solver.setSolutionLimit(Math.min(Integer.parseInt(value), this.solutionLimit));
+                case "timeout" -> {
+                    // The solver reads 0 as no timeout, which would lift the cap of the server
+                    long seconds = Long.parseLong(value);
+                    if (seconds < 1) {
+                        throw new IllegalArgumentException("The timeout must be positive.");
+                    }
+                    solver.setTimeout(seconds < this.timeout / 1000 ? seconds * 1000 : this.timeout);
+                }
+                case "strategy" ->
+                    solver.setStrategy(SolvingStrategy.valueOf(value.toUpperCase().replace('-', '_')));
+                case "unique" ->
+                    solver.setUniqueSolutions(!value.equals("false"));
+                default ->
+                    throw new IllegalArgumentException("Unknown option: " + option.getKey() + ".");
+            }
+        }
+        if (solver.getSolutionLimit() < 1) {
+            throw new IllegalArgumentException("The limit must be positive.");
+        }
+        return solver;
+    }
+
+    /**
+     * Parses the parameters of a query string.
+     */
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> options = new HashMap<>();
+        if (query != null && !query.isEmpty()) {
+            for (String parameter : query.split("&")) {
+                int equals = parameter.indexOf('=');
+                String name = (equals >= 0) ? parameter.substring(0, equals) : parameter;
+                String value = (equals >= 0) ? parameter.substring(equals + 1) : "";
+                options.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Appends a solution as an array of rows of pieces.
+     */
+    private static void appendSolution(StringBuilder json, PuzzlePiece[][] solution) {
+        json.append('[');
+        for (int row = 0; row < solution.length; row++) {
+            json.append(row > 0 ? ",[" : "[");
+            for (int col = 0; col < solution[row].length; col++) {
+                PuzzlePiece piece = solution[row][col];
+                int[] faces = piece.getFaces();
+                json.append(col > 0 ? "," : "").append("{\"id\":").append(piece.getId())
+                        .append(",\"faces\":[").append(faces[0]).append(',').append(faces[1])
+                        .append(',').append(faces[2]).append(',').append(faces[3]).append("]}");
+            }
+            json.append(']');
+        }
+        json.append(']');
+    }
+
+    /**
+     * Sends an error as a JSON object with its message.
+     */
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":\"");
+        for (char c : message.toCharArray()) {
+            switch (c) {
+                case '"' ->
+                    json.append("\\\"");
+                case '\\' ->
+                    json.append("\\\\");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        send(exchange, status, json.append("\"}").toString());
+    }
+
+    /**
+     * Sends a JSON response.
+     */
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
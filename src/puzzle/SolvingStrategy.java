@@ -0,0 +1,92 @@
+package puzzle;
+
+/**
+ * The order in which the solver fills the cells of a puzzle.
+ *
+ * @author jessmann
+ */
+public enum SolvingStrategy {
+
+    /**
+     * Fills the cells row by row, from left to right.
+     */
+    ROW_MAJOR,
+    /**
+     * Fills the border ring first, clockwise from the top left corner, and
+     * then the interior row by row. Every frame built from the border pieces
+     * is completed before any interior piece is tried, so a wrong choice on
+     * the right or bottom border is found before searching the interior.
+     */
+    FRAME_FIRST,
+    /**
+     * Fills the empty cell with the fewest remaining candidates first, and
+     * backtracks as soon as a cell next to the placed pieces has none.
+     */
+    MOST_CONSTRAINED;
+
+    /**
+     * Creates the cell order of the strategy for a puzzle of the given
+     * dimensions.
+     *
+     * @param rows The number of rows.
+     * @param cols The number of columns.
+     * @return The cell order.
+     */
+    public CellOrder createCellOrder(int rows, int cols) {
+        if (this == MOST_CONSTRAINED) {
+            return new MostConstrainedCellOrder();
+        }
+        int[] order = cellOrder(rows, cols);
+        return (board, depth) -> order[depth];
+    }
+
+    /**
+     * Gets the fixed order of the cells for a puzzle of the given dimensions.
+     * Cells are numbered row by row, so cell = row * cols + col.
+     *
+     * @param rows The number of rows.
+     * @param cols The number of columns.
+     * @return The cells in the order they are filled. It always starts with
+     * the top left corner.
+     * @throws IllegalStateException If the strategy chooses the cells during
+     * the search.
+     */
+    public int[] cellOrder(int rows, int cols) {
+        if (this == MOST_CONSTRAINED) {
+            throw new IllegalStateException("The most constrained order has no fixed order.");
+        }
+        int[] order = new int[rows * cols];
+        int depth = 0;
+
+        if (this == ROW_MAJOR || rows <= 2 || cols <= 2) {
+            // Without interior cells every cell is part of the frame
+            for (int cell = 0; cell < order.length; cell++) {
+                order[depth++] = cell;
+            }
+            return order;
+        }
+
+        // Frame: top row, right column, bottom row and left column
+        for (int col = 0; col < cols; col++) {
+            order[depth++] = col;
+        }
+        for (int row = 1; row < rows; row++) {
+            order[depth++] = row * cols + cols - 1;
+        }
+        for (int col = cols - 2; col >= 0; col--) {
+            order[depth++] = (rows - 1) * cols + col;
+        }
+        for (int row = rows - 2; row > 0; row--) {
+            order[depth++] = row * cols;
+        }
+
+        // Interior
+        for (int row = 1; row < rows - 1; row++) {
+            for (int col = 1; col < cols - 1; col++) {
+                order[depth++] = row * cols + col;
+            }
+        }
+        return order;
+    }
+
+}
@@ -0,0 +1,98 @@
+package solve;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import puzzle.BatchSolver;
+import puzzle.SolvingStrategy;
+
+/**
+ * A class to solve every puzzle of a directory or a manifest in one process.
+ *
+ * Usage: java -cp solve.jar solve.Batch [--jobs n] [--limit n] [--timeout
+ * secs] [--strategy row-major|frame-first|most-constrained] [--output file]
+ * path/to/puzzles
+ *
+ * @author jessmann
+ */
+public class Batch {
+
+    /**
+     * The main method to execute the batch-solving application.
+     *
+     * @param args Command line arguments. Expects a directory or a manifest
+     * with a puzzle file per line as the last argument, optionally preceded by
+     * --jobs and the number of puzzles solved at a time, --limit, --timeout
+     * and --strategy as for every puzzle in solve, or --output and the file
+     * the results are written to instead of being printed.
+     */
+    public static void main(String[] args) {
+        String sourceName = null;
+        String outputName = null;
+        int jobs = Runtime.getRuntime().availableProcessors();
+        int limit = 0;
+        long timeout = 0;
+        SolvingStrategy strategy = SolvingStrategy.ROW_MAJOR;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--jobs" ->
+                        jobs = Integer.parseInt(args[++i]);
+                    case "--limit" ->
+                        limit = Integer.parseInt(args[++i]);
+                    case "--timeout" ->
+                        timeout = Math.multiplyExact(Long.parseLong(args[++i]), 1000);
+                    case "--strategy" ->
+                        strategy = SolvingStrategy.valueOf(args[++i].toUpperCase().replace('-', '_'));
+                    case "--output" ->
+                        outputName = args[++i];
+                    default ->
+                        sourceName = args[i];
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException | ArithmeticException e) {
+            sourceName = null;
+        }
+
+        if (sourceName == null || jobs < 1 || limit < 0 || timeout < 0) {
+            System.out.println("Ussage: batch [--jobs n] [--limit n] [--timeout secs] [--strategy row-major|frame-first|most-constrained] [--output file] [directory|manifest]");
+            return;
+        }
+
+        try {
+            List<Path> puzzles = BatchSolver.listPuzzles(Paths.get(sourceName));
+            System.out.println("Solving " + puzzles.size() + " puzzles...");
+
+            // Stream the results to stdout, or to the output file, as soon as every puzzle is solved
+            Writer out = (outputName != null)
+                    ? Files.newBufferedWriter(Paths.get(outputName), StandardCharsets.UTF_8)
+                    : new BufferedWriter(new OutputStreamWriter(System.out));
+            BatchSolver solver = new BatchSolver(out);
+            solver.setJobs(jobs);
+            solver.setSolutionLimit(limit);
+            solver.setTimeout(timeout);
+            solver.setStrategy(strategy);
+
+            long startTime = System.currentTimeMillis();
+            try {
+                solver.solve(puzzles);
+            } finally {
+                if (outputName != null) {
+                    out.close();
+                }
+            }
+            long endTime = System.currentTimeMillis();
+
+            System.out.println("Solved in " + (endTime - startTime) / 1000 + " secs.");
+        } catch (IOException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package solve;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import puzzle.BinaryFormat;
+import puzzle.BinarySolutionReader;
+import puzzle.Puzzle;
+import puzzle.PuzzleAnalysis;
+import puzzle.PuzzleLoader;
+import puzzle.PuzzlePiece;
+import puzzle.SolutionWriter;
+
+/**
+ * A class to convert puzzles between the text and the binary formats, and to
+ * print binary solution files.
+ *
+ * Usage: java -cp solve.jar solve.Convert path/to/puzzle.txt
+ * path/to/puzzle.pzl
+ *
+ * @author jessmann
+ */
+public class Convert {
+
+    /**
+     * The main method to execute the converter.
+     *
+     * @param args Command line arguments. Expects the puzzle to convert and
+     * the file to write it to, in the text format if its name ends with .txt
+     * and in the binary format otherwise. With --normalise, the colours are
+     * numbered from 1, from the most common to the rarest. With --solutions,
+     * expects a puzzle and a binary file of its solutions, which are printed
+     * as text.
+     */
+    public static void main(String[] args) {
+        try {
+            if (args.length == 3 && args[0].equals("--solutions")) {
+                printSolutions(Paths.get(args[1]), Paths.get(args[2]));
+            } else if (args.length == 3 && args[0].equals("--normalise")) {
+                convertPuzzle(Paths.get(args[1]), Paths.get(args[2]), true);
+            } else if (args.length == 2) {
+                convertPuzzle(Paths.get(args[0]), Paths.get(args[1]), false);
+            } else {
+                System.out.println("Ussage: convert [--normalise] [input] [output] | convert --solutions [puzzle] [solutions]");
+            }
+        } catch (IOException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Converts a puzzle to the format given by the extension of the output,
+     * with dense colours if asked.
+     */
+    private static void convertPuzzle(Path input, Path output, boolean normalise) throws IOException {
+        Puzzle puzzle = PuzzleLoader.load(input);
+        if (normalise) {
+            puzzle = PuzzleAnalysis.of(puzzle).normalise();
+        }
+        if (output.toString().endsWith(".txt")) {
+            if (!puzzle.savePuzzle(output.toString())) {
+                throw new IOException("Could not write " + output);
+            }
+        } else {
+            BinaryFormat.savePuzzle(puzzle, output);
+        }
+    }
+
+    /**
+     * Prints the solutions of a binary solution file.
+     */
+    private static void printSolutions(Path puzzleFile, Path solutionFile) throws IOException {
+        Puzzle puzzle = PuzzleLoader.load(puzzleFile);
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+        try (BinarySolutionReader reader = new BinarySolutionReader(puzzle, FileChannel.open(solutionFile, StandardOpenOption.READ))) {
+            PuzzlePiece[][] solution;
+            while ((solution = reader.next()) != null) {
+                out.write(SolutionWriter.format(solution));
+            }
+        }
+        out.flush();
+    }
+}
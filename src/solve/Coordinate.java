@@ -0,0 +1,133 @@
+package solve;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import puzzle.BinarySolutionWriter;
+import puzzle.Puzzle;
+import puzzle.SearchCoordinator;
+import puzzle.SolutionWriter;
+import puzzle.SolvingStrategy;
+
+/**
+ * A class to solve a puzzle with worker processes started with solve.Work,
+ * on this machine or others.
+ *
+ * Usage: java -cp solve.jar solve.Coordinate [--port n] [--tasks n] [--limit
+ * n] [--strategy row-major|frame-first|most-constrained] [--unique] [--output
+ * file] path/to/puzzle.txt
+ *
+ * @author jessmann
+ */
+public class Coordinate {
+
+    /**
+     * Default port of the coordinator.
+     */
+    private static final int DEFAULT_PORT = 8090;
+
+    /**
+     * The main method to execute the coordinating application.
+     *
+     * @param args Command line arguments. Expects a filename as the last
+     * argument, optionally preceded by --port and the port the workers
+     * connect to, --tasks and the number of prefixes the search is split
+     * into at the start, or the --limit, --strategy, --unique and --output
+     * options of Solve.
+     */
+    public static void main(String[] args) {
+        String fileName = null;
+        String outputName = null;
+        int port = DEFAULT_PORT;
+        int tasks = SearchCoordinator.DEFAULT_TASKS;
+        int limit = 0;
+        SolvingStrategy strategy = SolvingStrategy.ROW_MAJOR;
+        boolean unique = false;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--port" ->
+                        port = Integer.parseInt(args[++i]);
+                    case "--tasks" ->
+                        tasks = Integer.parseInt(args[++i]);
+                    case "--limit" ->
+                        limit = Integer.parseInt(args[++i]);
+                    case "--strategy" ->
+                        strategy = SolvingStrategy.valueOf(args[++i].toUpperCase().replace('-', '_'));
+                    case "--unique" ->
+                        unique = true;
+                    case "--output" ->
+                        outputName = args[++i];
+                    default ->
+                        fileName = args[i];
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            fileName = null;
+        }
+
+        if (fileName == null || tasks < 1 || limit < 0) {
+            System.out.println("Ussage: coordinate [--port n] [--tasks n] [--limit n] [--strategy row-major|frame-first|most-constrained] [--unique] [--output file] [filename]");
+            return;
+        }
+
+        Puzzle puzzle = Puzzle.loadPuzzle(fileName);
+
+        if (puzzle != null) {
+            System.out.println(puzzle.toString());
+
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+            BinarySolutionWriter binaryOut = null;
+            SearchCoordinator coordinator = new SearchCoordinator(puzzle);
+            coordinator.setTasks(tasks);
+            coordinator.setSolutionLimit(limit);
+            coordinator.setStrategy(strategy);
+            coordinator.setUniqueSolutions(unique);
+            try {
+                if (outputName != null) {
+                    binaryOut = new BinarySolutionWriter(puzzle, FileChannel.open(Paths.get(outputName),
+                            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+                    coordinator.setSolutionListener(binaryOut);
+                } else {
+                    coordinator.setSolutionListener(new SolutionWriter(out, true));
+                }
+                coordinator.start(new InetSocketAddress(port));
+            } catch (IOException e) {
+                System.out.println("Error: Starting the coordinator: " + e.getMessage());
+                return;
+            }
+            System.out.println("Waiting for workers on port " + coordinator.getPort() + "...");
+            System.out.println("\nSolution(s):");
+
+            long startTime = System.currentTimeMillis();
+            try {
+                coordinator.solve();
+            } catch (InterruptedException e) {
+                coordinator.cancel();
+                Thread.currentThread().interrupt();
+            }
+            long executionTime = System.currentTimeMillis() - startTime;
+
+            try {
+                out.flush();
+                if (binaryOut != null) {
+                    binaryOut.close();
+                }
+            } catch (IOException e) {
+                System.out.println("Error: Writing solutions: " + e.getMessage());
+            }
+            System.out.println();
+            if (coordinator.isStopped()) {
+                System.out.println("Search stopped before exploring every branch.");
+            }
+            System.out.println("Solved in " + executionTime / 1000 + " secs with " + coordinator.getSplits()
+                    + " splits and " + coordinator.getLostWorkers() + " lost workers.");
+        }
+    }
+}
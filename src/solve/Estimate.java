@@ -0,0 +1,70 @@
+package solve;
+
+import puzzle.Puzzle;
+import puzzle.PuzzleSolver;
+import puzzle.SolvingStrategy;
+
+/**
+ * A class to estimate how long a puzzle takes to solve, without solving it.
+ *
+ * Usage: java -cp solve.jar solve.Estimate [--probes n] [--seed n]
+ * [--strategy row-major|frame-first|most-constrained] path/to/puzzle.txt
+ *
+ * @author jessmann
+ */
+public class Estimate {
+
+    /**
+     * Default number of random probes down the search tree.
+     */
+    private static final int DEFAULT_PROBES = 10000;
+
+    /**
+     * The main method to execute the estimating application.
+     *
+     * @param args Command line arguments. Expects a filename as the last
+     * argument, optionally preceded by --probes and the number of random
+     * probes down the search tree, --seed and the seed of the random choices,
+     * or --strategy and the order in which the cells are filled.
+     */
+    public static void main(String[] args) {
+        String fileName = null;
+        int probes = DEFAULT_PROBES;
+        long seed = 1;
+        SolvingStrategy strategy = SolvingStrategy.ROW_MAJOR;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--probes" ->
+                        probes = Integer.parseInt(args[++i]);
+                    case "--seed" ->
+                        seed = Long.parseLong(args[++i]);
+                    case "--strategy" ->
+                        strategy = SolvingStrategy.valueOf(args[++i].toUpperCase().replace('-', '_'));
+                    default ->
+                        fileName = args[i];
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            fileName = null;
+        }
+
+        if (fileName == null || probes < 1) {
+            System.out.println("Ussage: estimate [--probes n] [--seed n] [--strategy row-major|frame-first|most-constrained] [filename]");
+            return;
+        }
+
+        Puzzle puzzle = Puzzle.loadPuzzle(fileName);
+
+        if (puzzle != null) {
+            PuzzleSolver solver = new PuzzleSolver(puzzle);
+            solver.setStrategy(strategy);
+            // A puzzle that fails the checks is not searched, so its time is unknown
+            for (String problem : solver.getAnalysis().getProblems()) {
+                System.out.println("Error: " + problem);
+            }
+            System.out.println(solver.estimate(probes, seed));
+        }
+    }
+}
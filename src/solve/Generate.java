@@ -0,0 +1,57 @@
+package solve;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import puzzle.Puzzle;
+import puzzle.PuzzleGenerator;
+
+/**
+ * A class to generate solvable puzzles with random edge colours.
+ *
+ * Usage: java -cp solve.jar solve.Generate cols rows colours seed
+ * [path/to/puzzle.txt]
+ *
+ * @author jessmann
+ */
+public class Generate {
+
+    /**
+     * The main method to execute the puzzle-generating application.
+     *
+     * @param args Command line arguments. Expects the number of columns, rows
+     * and edge colours and the seed, optionally followed by the filename to
+     * write the puzzle to. Without a filename the puzzle is printed.
+     */
+    public static void main(String[] args) {
+        if (args.length < 4) {
+            System.out.println("Ussage: generate [cols] [rows] [colours] [seed] [filename]");
+            return;
+        }
+
+        Puzzle puzzle;
+        try {
+            int cols = Integer.parseInt(args[0]);
+            int rows = Integer.parseInt(args[1]);
+            int colours = Integer.parseInt(args[2]);
+            long seed = Long.parseLong(args[3]);
+            puzzle = new PuzzleGenerator(seed).generate(cols, rows, colours);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+            return;
+        }
+
+        if (args.length > 4) {
+            puzzle.savePuzzle(args[4]);
+        } else {
+            try {
+                Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+                puzzle.writePuzzle(out);
+                out.flush();
+            } catch (IOException e) {
+                System.out.println("Error: Writing puzzle: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package solve;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import puzzle.BinarySolutionWriter;
+import puzzle.Puzzle;
+import puzzle.SolutionListener;
+import puzzle.SolutionMerger;
+import puzzle.SolutionWriter;
+
+/**
+ * A class to merge the solutions of the shards of a puzzle, written by
+ * separate runs of solve.Solve with --shard and --output.
+ *
+ * Usage: java -cp solve.jar solve.Merge [--unique] [--output file]
+ * path/to/puzzle.txt shard1.pzs shard2.pzs ...
+ *
+ * @author jessmann
+ */
+public class Merge {
+
+    /**
+     * The main method to execute the merging application.
+     *
+     * @param args Command line arguments. Expects the puzzle file followed by
+     * the solution files of the shards, optionally preceded by --unique to
+     * drop the solutions that show the same picture as another one, or
+     * --output and a file the solutions are written to in the binary format
+     * instead of being printed.
+     */
+    public static void main(String[] args) {
+        String outputName = null;
+        boolean unique = false;
+        List<String> fileNames = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--unique" ->
+                        unique = true;
+                    case "--output" ->
+                        outputName = args[++i];
+                    default ->
+                        fileNames.add(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            fileNames.clear();
+        }
+
+        if (fileNames.size() < 2) {
+            System.out.println("Ussage: merge [--unique] [--output file] [filename] [shard files]");
+            return;
+        }
+
+        Puzzle puzzle = Puzzle.loadPuzzle(fileNames.get(0));
+
+        if (puzzle != null) {
+            List<Path> shards = new ArrayList<>();
+            for (String name : fileNames.subList(1, fileNames.size())) {
+                shards.add(Paths.get(name));
+            }
+            SolutionMerger merger = new SolutionMerger(puzzle);
+            merger.setUniqueSolutions(unique);
+
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+            BinarySolutionWriter binaryOut = null;
+            try {
+                SolutionListener found;
+                if (outputName != null) {
+                    binaryOut = new BinarySolutionWriter(puzzle, FileChannel.open(Paths.get(outputName),
+                            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+                    found = binaryOut;
+                } else {
+                    System.out.println("Solution(s):");
+                    found = new SolutionWriter(out, true);
+                }
+                long count = merger.merge(shards, found);
+                out.flush();
+                if (binaryOut != null) {
+                    binaryOut.close();
+                }
+                System.out.println("Merged " + count + " solutions from " + shards.size() + " shards.");
+            } catch (IOException e) {
+                System.out.println("Error: Merging solutions: " + e.getMessage());
+            } catch (UncheckedIOException e) {
+                System.out.println("Error: Writing solutions: " + e.getCause().getMessage());
+            }
+        }
+    }
+}
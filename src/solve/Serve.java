@@ -0,0 +1,84 @@
+package solve;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import puzzle.SolutionCache;
+import puzzle.SolveServer;
+
+/**
+ * A class to solve puzzles sent over HTTP by a long-running process.
+ *
+ * Usage: java -cp solve.jar solve.Serve [--port n] [--workers n] [--queue n]
+ * [--limit n] [--timeout secs] [--max-pieces n] [--cache-size mb] [--cache
+ * dir]
+ *
+ * @author jessmann
+ */
+public class Serve {
+
+    /**
+     * Default port of the service.
+     */
+    private static final int DEFAULT_PORT = 8080;
+
+    /**
+     * The main method to execute the solving service.
+     *
+     * @param args Command line arguments, optionally --port and the port to
+     * listen on, --workers and the number of puzzles solved at a time,
+     * --queue and the number of puzzles that can wait for a worker, or
+     * --limit and --timeout and the most solutions and seconds a request can
+     * get, or --max-pieces and the most pieces of a puzzle, or --cache-size
+     * and the megabytes of solutions kept in memory for puzzles sent again (0
+     * for no cache) and --cache and a directory they are also saved to.
+     */
+    public static void main(String[] args) {
+        SolveServer server = new SolveServer();
+        int port = DEFAULT_PORT;
+        long cacheSize = SolutionCache.DEFAULT_MAX_BYTES;
+        String cacheName = null;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--port" ->
+                        port = Integer.parseInt(args[++i]);
+                    case "--workers" ->
+                        server.setWorkers(Integer.parseInt(args[++i]));
+                    case "--queue" ->
+                        server.setQueueSize(Integer.parseInt(args[++i]));
+                    case "--limit" ->
+                        server.setSolutionLimit(Integer.parseInt(args[++i]));
+                    case "--timeout" ->
+                        server.setTimeout(Math.multiplyExact(Long.parseLong(args[++i]), 1000));
+                    case "--max-pieces" ->
+                        server.setMaxPieces(Integer.parseInt(args[++i]));
+                    case "--cache-size" ->
+                        cacheSize = Long.parseLong(args[++i]) << 20;
+                    case "--cache" ->
+                        cacheName = args[++i];
+                    default ->
+                        throw new IllegalArgumentException(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException | ArithmeticException e) {
+            System.out.println("Ussage: serve [--port n] [--workers n] [--queue n] [--limit n] [--timeout secs] [--max-pieces n] [--cache-size mb] [--cache dir]");
+            return;
+        }
+
+        try {
+            if (cacheSize > 0 || cacheName != null) {
+                SolutionCache cache = new SolutionCache(cacheSize);
+                if (cacheName != null) {
+                    cache.setDirectory(Paths.get(cacheName));
+                }
+                server.setSolutionCache(cache);
+            }
+            server.start(new InetSocketAddress(port));
+            System.out.println("Listening on port " + server.getPort() + ".");
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Error: Starting the server: " + e.getMessage());
+        }
+    }
+}
@@ -1,12 +1,33 @@
 package solve;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Timer;
+import java.util.TimerTask;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import puzzle.BinarySolutionWriter;
 import puzzle.Puzzle;
+import puzzle.PuzzleAnalysis;
 import puzzle.PuzzleSolver;
+import puzzle.SolutionCache;
+import puzzle.SolutionWriter;
+import puzzle.SolvingStrategy;
 
 /**
  * A class to solve puzzles loaded from a file.
  *
- * Usage: java -jar solve.jar path/to/puzzle.txt
+ * Usage: java -jar solve.jar [--threads n] [--limit n] [--timeout secs]
+ * [--strategy row-major|frame-first|most-constrained] [--unique] [--output
+ * file] [--checkpoint file [--resume]] [--progress secs] [--cache dir]
+ * [--shard k/n] path/to/puzzle.txt
  *
  * @author jessmann
  */
@@ -15,32 +36,182 @@ public class Solve {
     /**
      * The main method to execute the puzzle-solving application.
      *
-     * @param args Command line arguments. Expects a filename as the first
-     * argument.
+     * @param args Command line arguments. Expects a filename as the last
+     * argument, optionally preceded by --threads and the number of threads,
+     * --limit and the maximum number of solutions, --timeout and the number of
+     * seconds after which the search is cancelled, --strategy and the order
+     * in which the cells are filled, --unique to drop the solutions that show
+     * the same picture as another one, or --output and a file the solutions
+     * are written to in the binary format instead of being printed, or
+     * --checkpoint and a file the position of the search is saved to every
+     * minute, optionally followed by --resume to continue from it, or
+     * --progress and the number of seconds between two progress lines on the
+     * standard error, or --cache and a directory the solutions are saved to
+     * and taken from when the same puzzle is solved again, or --shard and the
+     * part k of n of the search tree to explore, from 1 to n.
      */
     public static void main(String[] args) {
-        if (args.length < 1) {
-            System.out.println("Ussage: solve [filename]");
+        String fileName = null;
+        String outputName = null;
+        String checkpointName = null;
+        String cacheName = null;
+        int threads = 1;
+        int shard = 1;
+        int shardCount = 1;
+        int limit = 0;
+        long timeout = 0;
+        long progress = 0;
+        SolvingStrategy strategy = SolvingStrategy.ROW_MAJOR;
+        boolean unique = false;
+        boolean resume = false;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--threads" ->
+                        threads = Integer.parseInt(args[++i]);
+                    case "--limit" ->
+                        limit = Integer.parseInt(args[++i]);
+                    case "--timeout" ->
+                        timeout = Math.multiplyExact(Long.parseLong(args[++i]), 1000);
+                    case "--strategy" ->
+                        strategy = SolvingStrategy.valueOf(args[++i].toUpperCase().replace('-', '_'));
+                    case "--unique" ->
+                        unique = true;
+                    case "--output" ->
+                        outputName = args[++i];
+                    case "--checkpoint" ->
+                        checkpointName = args[++i];
+                    case "--resume" ->
+                        resume = true;
+                    case "--progress" ->
+                        progress = Math.multiplyExact(Long.parseLong(args[++i]), 1000);
+                    case "--cache" ->
+                        cacheName = args[++i];
+                    case "--shard" -> {
+                        String[] parts = args[++i].split("/");
+                        shard = Integer.parseInt(parts[0]);
+                        shardCount = Integer.parseInt(parts[1]);
+                    }
+                    default ->
+                        fileName = args[i];
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException | ArithmeticException e) {
+            fileName = null;
+        }
+
+        if (fileName == null || threads < 1 || limit < 0 || timeout < 0 || progress < 0
+                || (checkpointName != null && threads > 1) || (resume && checkpointName == null)
+                || shardCount < 1 || shard < 1 || shard > shardCount || (checkpointName != null && shardCount > 1)) {
+            System.out.println("Ussage: solve [--threads n] [--limit n] [--timeout secs] [--strategy row-major|frame-first|most-constrained] [--unique] [--output file] [--checkpoint file [--resume]] [--progress secs] [--cache dir] [--shard k/n] [filename]");
             return;
         }
 
-        String fileName = args[0];
         Puzzle puzzle = Puzzle.loadPuzzle(fileName);
 
         if (puzzle != null) {
             System.out.println(puzzle.toString());
-            System.out.println("Solving...");
 
+            // The solver keeps the analysis, so solve() does not check the puzzle again
             PuzzleSolver solver = new PuzzleSolver(puzzle);
+            PuzzleAnalysis analysis = solver.getAnalysis();
+            if (!analysis.isFeasible()) {
+                for (String problem : analysis.getProblems()) {
+                    System.out.println("Error: " + problem);
+                }
+                System.out.println("The puzzle has no solution.");
+                return;
+            }
+            System.out.println("Solving...");
+
+            // Stream the solutions to stdout, or to the output file, as soon as they are found
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+            BinarySolutionWriter binaryOut = null;
+            solver.setThreads(threads);
+            solver.setSolutionLimit(limit);
+            solver.setTimeout(timeout);
+            solver.setStrategy(strategy);
+            solver.setUniqueSolutions(unique);
+            solver.setShard(shard, shardCount);
+            if (checkpointName != null) {
+                solver.setCheckpointFile(Paths.get(checkpointName));
+                solver.setResume(resume);
+            }
+            if (cacheName != null) {
+                SolutionCache cache = new SolutionCache();
+                try {
+                    cache.setDirectory(Paths.get(cacheName));
+                } catch (IOException e) {
+                    System.out.println("Error: Opening the cache: " + e.getMessage());
+                    return;
+                }
+                solver.setSolutionCache(cache);
+            }
+            if (outputName != null) {
+                try {
+                    binaryOut = new BinarySolutionWriter(puzzle, FileChannel.open(Paths.get(outputName),
+                            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+                } catch (IOException e) {
+                    System.out.println("Error: Writing solutions: " + e.getMessage());
+                    return;
+                }
+                solver.setSolutionListener(binaryOut);
+            } else {
+                solver.setSolutionListener(new SolutionWriter(out, true));
+            }
+
+            // Watch the search through JMX, and on the standard error if asked
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(solver.getMetrics(),
+                        new ObjectName("puzzle:type=PuzzleSolver"));
+            } catch (JMException e) {
+                System.err.println("Error: Registering the search metrics: " + e.getMessage());
+            }
+            Timer progressTimer = null;
+            if (progress > 0) {
+                // Timer refuses a period that overflows the clock
+                long period = Math.min(progress, Long.MAX_VALUE >> 2);
+                progressTimer = new Timer(true);
+                progressTimer.schedule(new TimerTask() {
+                    @Override
+                    public void run() {
+                        System.err.println("Progress: " + solver.getMetrics());
+                    }
+                }, period, period);
+            }
+
+            if (outputName == null) {
+                System.out.println("\nSolution(s):");
+            }
 
             long startTime = System.currentTimeMillis();
-            solver.solve();
+            try {
+                solver.solve();
+            } catch (UncheckedIOException e) {
+                System.out.println("Error: " + e.getCause().getMessage());
+                return;
+            } finally {
+                if (progressTimer != null) {
+                    progressTimer.cancel();
+                }
+            }
             long endTime = System.currentTimeMillis();
 
             long executionTime = endTime - startTime;
 
-            String solutions = solver.getSolutionsAsString();
-            System.out.println(solutions);
+            try {
+                out.flush();
+                if (binaryOut != null) {
+                    binaryOut.close();
+                }
+            } catch (IOException e) {
+                System.out.println("Error: Writing solutions: " + e.getMessage());
+            }
+            System.out.println();
+            if (solver.isStopped()) {
+                System.out.println("Search stopped before exploring every branch.");
+            }
             System.out.println("Solved in " + executionTime / 1000 + " secs.");
 
         }
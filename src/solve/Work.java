@@ -0,0 +1,49 @@
+package solve;
+
+import java.io.IOException;
+import puzzle.SearchWorker;
+
+/**
+ * A class to search parts of a puzzle for a coordinator started with
+ * solve.Coordinate.
+ *
+ * Usage: java -cp solve.jar solve.Work host:port
+ *
+ * @author jessmann
+ */
+public class Work {
+
+    /**
+     * The main method to execute the worker application.
+     *
+     * @param args Command line arguments. Expects the host and port of the
+     * coordinator, separated by a colon.
+     */
+    public static void main(String[] args) {
+        String host = null;
+        int port = 0;
+
+        try {
+            if (args.length == 1) {
+                int colon = args[0].lastIndexOf(':');
+                host = args[0].substring(0, colon);
+                port = Integer.parseInt(args[0].substring(colon + 1));
+            }
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            host = null;
+        }
+
+        if (host == null) {
+            System.out.println("Ussage: work host:port");
+            return;
+        }
+
+        SearchWorker worker = new SearchWorker(host, port);
+        try {
+            worker.run();
+            System.out.println("Searched " + worker.getTasks() + " parts.");
+        } catch (IOException e) {
+            System.out.println("Error: Working for " + args[0] + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import puzzle.BatchSolver;
+
+/**
+ * Test class for the BatchSolver class. Focuses on listing the puzzles of a
+ * batch and writing a result per puzzle.
+ *
+ * @author jessmann
+ */
+public class BatchSolverTest {
+
+    /**
+     * Verifies that the puzzles of a directory are listed by name, and the
+     * puzzles of a manifest relative to it.
+     */
+    @Test
+    public void testListPuzzles() throws IOException {
+        List<Path> puzzles = BatchSolver.listPuzzles(Paths.get("puzzles"));
+        assertEquals(7, puzzles.size());
+        assertEquals(Paths.get("puzzles/10x10.txt"), puzzles.get(0));
+
+        File manifest = File.createTempFile("manifest", ".txt");
+        manifest.deleteOnExit();
+        Files.write(manifest.toPath(), Arrays.asList("# Small puzzles", "4x4.txt", "", "  sub/5x5.txt"), StandardCharsets.UTF_8);
+
+        puzzles = BatchSolver.listPuzzles(manifest.toPath());
+        Path dir = manifest.toPath().toAbsolutePath().getParent();
+        assertEquals(Arrays.asList(dir.resolve("4x4.txt"), dir.resolve("sub/5x5.txt")), puzzles);
+    }
+
+    /**
+     * Verifies that every puzzle gets a result line, including the ones that
+     * cannot be loaded.
+     */
+    @Test
+    public void testSolve() throws IOException {
+        StringWriter results = new StringWriter();
+        BatchSolver solver = new BatchSolver(results);
+        solver.setJobs(2);
+        solver.solve(Arrays.asList(Paths.get("puzzles/4x4.txt"), Paths.get("puzzles/5x5.txt"),
+                Paths.get("puzzles/missing.txt"), Paths.get("puzzles/8x8.txt")));
+
+        List<String> lines = Arrays.asList(results.toString().split("\n"));
+        assertEquals(4, lines.size());
+        assertTrue(lines.stream().anyMatch(line -> line.matches("puzzles/4x4\\.txt\t2\t\\d+\tcomplete")));
+        assertTrue(lines.stream().anyMatch(line -> line.matches("puzzles/5x5\\.txt\t1\t\\d+\tcomplete")));
+        assertTrue(lines.stream().anyMatch(line -> line.matches("puzzles/missing\\.txt\t0\t\\d+\terror .*")));
+    }
+
+    /**
+     * Verifies that a puzzle that fails with an error, not an exception, gets
+     * its result line and does not stop the others.
+     */
+    @Test
+    public void testError() throws IOException {
+        // A path that runs out of memory as soon as it is opened
+        Path failing = (Path) Proxy.newProxyInstance(Path.class.getClassLoader(), new Class<?>[]{Path.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("toString")) {
+                        return "puzzles/huge.txt";
+                    }
+                    throw new OutOfMemoryError("Java heap space");
+                });
+        StringWriter results = new StringWriter();
+        BatchSolver solver = new BatchSolver(results);
+        solver.setJobs(1);
+        solver.solve(Arrays.asList(failing, Paths.get("puzzles/4x4.txt")));
+
+        List<String> lines = Arrays.asList(results.toString().split("\n"));
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0), lines.get(0).matches("puzzles/huge\\.txt\t0\t\\d+\terror java\\.lang\\.OutOfMemoryError: .*"));
+        assertTrue(lines.get(1), lines.get(1).matches("puzzles/4x4\\.txt\t2\t\\d+\tcomplete"));
+    }
+}
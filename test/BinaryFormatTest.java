@@ -0,0 +1,111 @@
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import puzzle.BinaryFormat;
+import puzzle.BinarySolutionReader;
+import puzzle.BinarySolutionWriter;
+import puzzle.Puzzle;
+import puzzle.PuzzleFormatException;
+import puzzle.PuzzleLoader;
+import puzzle.PuzzlePiece;
+import puzzle.PuzzleSolver;
+
+/**
+ * Test class for the binary puzzle and solution formats.
+ *
+ * @author jessmann
+ */
+public class BinaryFormatTest {
+
+    /**
+     * Verifies that puzzles are written with the smallest face width and read
+     * back with the same pieces.
+     */
+    @Test
+    public void testPuzzleRoundTrip() throws IOException {
+        int[][] faces = {{0, 0, 1, 200}, {0, 0, 1, 300}, {0, 0, 1, 70000}};
+        int[] sizes = {14 + 8, 14 + 16, 14 + 32};
+        for (int i = 0; i < faces.length; i++) {
+            Puzzle puzzle = new Puzzle(2, 1, new PuzzlePiece[]{
+                new PuzzlePiece(1, faces[i]), new PuzzlePiece(2, new int[]{1, 0, 0, 0})});
+
+            byte[] bytes = writePuzzle(puzzle);
+            assertEquals(sizes[i], bytes.length);
+
+            Puzzle read = PuzzleLoader.parse(ByteBuffer.wrap(bytes));
+            assertEquals(2, read.getCols());
+            assertEquals(1, read.getRows());
+            assertArrayEquals(faces[i], read.getPieces()[0].getFaces());
+            assertEquals(2, read.getPieces()[1].getId());
+        }
+    }
+
+    /**
+     * Verifies that truncated and unknown files are rejected.
+     */
+    @Test(expected = PuzzleFormatException.class)
+    public void testTruncatedPuzzle() throws IOException {
+        byte[] bytes = writePuzzle(Puzzle.loadPuzzle("puzzles/4x4.txt"));
+        BinaryFormat.parsePuzzle(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 1)));
+    }
+
+    /**
+     * Verifies that the solutions written by the solver are read back in the
+     * same order and orientation.
+     */
+    @Test
+    public void testSolutionRoundTrip() throws IOException {
+        Puzzle puzzle = Puzzle.loadPuzzle("puzzles/8x8.txt");
+        List<PuzzlePiece[][]> expected = new ArrayList<>();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BinarySolutionWriter writer = new BinarySolutionWriter(puzzle, Channels.newChannel(bytes))) {
+            PuzzleSolver solver = new PuzzleSolver(puzzle);
+            solver.setSolutionListener(solution -> {
+                expected.add(solution);
+                writer.onSolution(solution);
+            });
+            solver.solve();
+        }
+        assertFalse(expected.isEmpty());
+        assertEquals(14 + expected.size() * 64 * 2, bytes.size());
+
+        try (BinarySolutionReader reader = new BinarySolutionReader(puzzle,
+                Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())))) {
+            for (PuzzlePiece[][] solution : expected) {
+                PuzzlePiece[][] read = reader.next();
+                for (int row = 0; row < solution.length; row++) {
+                    for (int col = 0; col < solution[row].length; col++) {
+                        assertEquals(solution[row][col].getId(), read[row][col].getId());
+                        assertArrayEquals(solution[row][col].getFaces(), read[row][col].getFaces());
+                    }
+                }
+            }
+            assertNull(reader.next());
+        }
+    }
+
+    /**
+     * Verifies that solutions of another puzzle are rejected.
+     */
+    @Test(expected = PuzzleFormatException.class)
+    public void testSolutionsOfAnotherPuzzle() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new BinarySolutionWriter(Puzzle.loadPuzzle("puzzles/4x4.txt"), Channels.newChannel(bytes)).close();
+        new BinarySolutionReader(Puzzle.loadPuzzle("puzzles/5x5.txt"),
+                Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    private static byte[] writePuzzle(Puzzle puzzle) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryFormat.writePuzzle(puzzle, Channels.newChannel(bytes));
+        return bytes.toByteArray();
+    }
+}
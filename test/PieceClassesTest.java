@@ -0,0 +1,55 @@
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import puzzle.PieceClasses;
+import puzzle.PieceIndex;
+import puzzle.PuzzlePiece;
+
+/**
+ * Test class for the PieceClasses class. Focuses on grouping the pieces that
+ * are identical up to rotation.
+ *
+ * @author jessmann
+ */
+public class PieceClassesTest {
+
+    /**
+     * Verifies that rotated copies of a piece share a class, with the rotation
+     * that turns the first copy into them.
+     */
+    @Test
+    public void testClasses() {
+        PuzzlePiece[] pieces = {
+            new PuzzlePiece(1, new int[]{1, 2, 3, 4}),
+            new PuzzlePiece(2, new int[]{5, 6, 7, 8}),
+            new PuzzlePiece(3, new int[]{4, 1, 2, 3}),
+            new PuzzlePiece(4, new int[]{1, 2, 3, 4})
+        };
+        PieceClasses classes = new PieceClasses(pieces);
+
+        assertEquals(2, classes.getClassCount());
+        assertEquals(0, classes.getClassOf(2));
+        assertEquals(1, classes.getClassOf(1));
+        assertEquals(1, classes.getRotation(2));
+        assertEquals(3, classes.getSize(0));
+        assertEquals(1, classes.getRepresentative(1));
+    }
+
+    /**
+     * Verifies that candidates showing the same faces have the same
+     * orientation, also for symmetric pieces.
+     */
+    @Test
+    public void testOrientation() {
+        PuzzlePiece[] pieces = {
+            new PuzzlePiece(1, new int[]{1, 2, 1, 2}),
+            new PuzzlePiece(2, new int[]{2, 1, 2, 1})
+        };
+        PieceClasses classes = new PieceClasses(pieces);
+
+        assertEquals(1, classes.getClassCount());
+        assertEquals(classes.orientationOf(PieceIndex.candidate(0, 0), 0), classes.orientationOf(PieceIndex.candidate(1, 1), 0));
+        assertEquals(classes.orientationOf(PieceIndex.candidate(0, 0), 0), classes.orientationOf(PieceIndex.candidate(0, 2), 0));
+        assertNotEquals(classes.orientationOf(PieceIndex.candidate(0, 0), 0), classes.orientationOf(PieceIndex.candidate(0, 1), 0));
+    }
+}
@@ -0,0 +1,85 @@
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import puzzle.PieceIndex;
+import puzzle.PuzzlePiece;
+
+/**
+ * Test class for the PieceIndex class. Focuses on the lookup of the candidates
+ * that fit a cell.
+ *
+ * @author jessmann
+ */
+public class PieceIndexTest {
+
+    /**
+     * Verifies that a corner piece is found in the orientation that fits the
+     * top left corner.
+     */
+    @Test
+    public void testCornerCandidate() {
+        PuzzlePiece[] pieces = {
+            new PuzzlePiece(1, new int[]{1, 2, 3, 4}),
+            new PuzzlePiece(2, new int[]{5, 6, 0, 0})
+        };
+        PieceIndex index = new PieceIndex(pieces);
+
+        int borders = PieceIndex.borderClass(0, 0, 2, 2);
+        int[] candidates = index.getCandidates(borders, 0, 0);
+
+        assertEquals(1, candidates.length);
+        assertEquals(1, PieceIndex.pieceOf(candidates[0]));
+        assertEquals(2, PieceIndex.rotationOf(candidates[0]));
+        assertEquals(5, index.getFace(candidates[0], 2));
+        assertEquals(6, index.getFace(candidates[0], 3));
+    }
+
+    /**
+     * Verifies that interior candidates are looked up by their left and top
+     * faces.
+     */
+    @Test
+    public void testInteriorCandidates() {
+        PuzzlePiece[] pieces = {
+            new PuzzlePiece(1, new int[]{1, 2, 3, 4}),
+            new PuzzlePiece(2, new int[]{4, 1, 7, 8}),
+            new PuzzlePiece(3, new int[]{9, 9, 9, 9})
+        };
+        PieceIndex index = new PieceIndex(pieces);
+
+        int borders = PieceIndex.borderClass(1, 1, 3, 3);
+        int[] candidates = index.getCandidates(borders, 4, 1);
+
+        assertEquals(2, candidates.length);
+        assertEquals(0, PieceIndex.pieceOf(candidates[0]));
+        assertEquals(1, PieceIndex.pieceOf(candidates[1]));
+        assertEquals(0, index.getCandidates(borders, 3, 3).length);
+    }
+
+    /**
+     * Verifies that symmetric pieces are registered once per distinct
+     * orientation.
+     */
+    @Test
+    public void testSymmetricPiece() {
+        PuzzlePiece[] pieces = {
+            new PuzzlePiece(1, new int[]{9, 9, 9, 9})
+        };
+        PieceIndex index = new PieceIndex(pieces);
+
+        int borders = PieceIndex.borderClass(1, 1, 3, 3);
+        assertEquals(1, index.getCandidates(borders, 9, 9).length);
+    }
+
+    /**
+     * Verifies that the border class of a cell depends on its position in the
+     * puzzle.
+     */
+    @Test
+    public void testBorderClass() {
+        assertEquals(PieceIndex.LEFT | PieceIndex.TOP, PieceIndex.borderClass(0, 0, 3, 3));
+        assertEquals(PieceIndex.RIGHT | PieceIndex.BOTTOM, PieceIndex.borderClass(2, 2, 3, 3));
+        assertEquals(0, PieceIndex.borderClass(1, 1, 3, 3));
+        assertEquals(PieceIndex.TOP | PieceIndex.BOTTOM, PieceIndex.borderClass(0, 1, 1, 3));
+    }
+}
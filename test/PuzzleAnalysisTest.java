@@ -0,0 +1,205 @@
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import puzzle.Puzzle;
+import puzzle.PuzzleAnalysis;
+import puzzle.PuzzleGenerator;
+import puzzle.PuzzleLoader;
+import puzzle.PuzzlePiece;
+import puzzle.PuzzleSolver;
+
+/**
+ * Test class for the PuzzleAnalysis class. Focuses on the puzzles rejected by
+ * each check and on the dense numbering of the colours.
+ *
+ * @author jessmann
+ */
+public class PuzzleAnalysisTest {
+
+    /**
+     * Verifies that solvable puzzles of every shape, strips included, pass
+     * every check.
+     */
+    @Test
+    public void testSolvablePuzzles() throws IOException {
+        for (String name : new String[]{"4x4", "5x1", "2x10", "10x10"}) {
+            Puzzle puzzle = PuzzleLoader.load(Paths.get("puzzles/" + name + ".txt"));
+            assertTrue(name, PuzzleAnalysis.of(puzzle).isFeasible());
+        }
+        for (int seed = 0; seed < 50; seed++) {
+            Puzzle puzzle = new PuzzleGenerator(seed).generate(1 + seed % 6, 1 + seed / 6 % 5, 1 + seed % 4);
+            assertTrue(PuzzleAnalysis.of(puzzle).toString(), PuzzleAnalysis.of(puzzle).isFeasible());
+        }
+    }
+
+    /**
+     * Verifies that a puzzle without the corner pieces its cells need is
+     * rejected.
+     */
+    @Test
+    public void testShapes() {
+        Puzzle puzzle = new PuzzleGenerator(1).generate(4, 3, 3);
+        PuzzlePiece[] pieces = puzzle.getPieces();
+        for (PuzzlePiece piece : pieces) {
+            if (borders(piece) == 2) {
+                // A corner loses a border and becomes an edge piece
+                int[] faces = piece.getFaces().clone();
+                faces[Arrays.stream(new int[]{0, 1, 2, 3}).filter(face -> faces[face] == 0).findFirst().getAsInt()] = 1;
+                piece.setFaces(faces);
+                break;
+            }
+        }
+        PuzzleAnalysis analysis = PuzzleAnalysis.of(puzzle);
+
+        assertFalse(analysis.isFeasible());
+        assertEquals(Arrays.asList("The puzzle needs 6 edge pieces, found 7.", "The puzzle needs 4 corner pieces, found 3."),
+                analysis.getProblems());
+        assertFalse(PuzzleAnalysis.of(new Puzzle(2, 2, Arrays.copyOf(pieces, 3))).isFeasible());
+    }
+
+    /**
+     * Verifies that a colour on an odd number of faces is rejected.
+     */
+    @Test
+    public void testOddColour() {
+        Puzzle puzzle = new PuzzleGenerator(2).generate(4, 4, 3);
+        PuzzlePiece inner = Arrays.stream(puzzle.getPieces()).filter(piece -> borders(piece) == 0).findFirst().get();
+        int[] faces = inner.getFaces().clone();
+        faces[0] = 9;
+        inner.setFaces(faces);
+        PuzzleAnalysis analysis = PuzzleAnalysis.of(puzzle);
+
+        assertFalse(analysis.isFeasible());
+        assertTrue(analysis.getProblems().contains("Colour 9 is on 1 faces, but every edge joins two faces."));
+    }
+
+    /**
+     * Verifies that colours that pair up overall but not along the frame are
+     * rejected.
+     */
+    @Test
+    public void testFrameColours() {
+        Puzzle puzzle = solvable3x3();
+        // One frame face and one inner face swap their colours, which keeps the counts of both
+        puzzle.getPieces()[7].setFaces(new int[]{3, 2, 2, 0});
+        puzzle.getPieces()[4].setFaces(new int[]{2, 2, 2, 3});
+        assertTrue(PuzzleAnalysis.of(solvable3x3()).isFeasible());
+        PuzzleAnalysis analysis = PuzzleAnalysis.of(puzzle);
+
+        assertFalse(analysis.isFeasible());
+        assertTrue(analysis.getProblems().contains("Colour 2 is on 1 faces along the frame, but every edge of the frame joins two."));
+    }
+
+    /**
+     * Verifies that inward faces of edge pieces without matching faces on the
+     * inner pieces are rejected.
+     */
+    @Test
+    public void testInwardColours() {
+        Puzzle puzzle = solvable3x3();
+        puzzle.getPieces()[4].setFaces(new int[]{1, 1, 1, 1});
+        PuzzleAnalysis analysis = PuzzleAnalysis.of(puzzle);
+
+        assertFalse(analysis.isFeasible());
+        assertEquals(Arrays.asList("Colour 2 is on 4 inward faces of edge pieces, but only on 0 faces of inner pieces."),
+                analysis.getProblems());
+    }
+
+    /**
+     * Verifies that an infeasible puzzle is not searched.
+     */
+    @Test
+    public void testInfeasibleNotSearched() {
+        Puzzle puzzle = solvable3x3();
+        puzzle.getPieces()[4].setFaces(new int[]{1, 1, 1, 1});
+        PuzzleSolver solver = new PuzzleSolver(puzzle);
+        solver.solve();
+
+        assertEquals("\nSolution(s):\n", solver.getSolutionsAsString());
+        assertEquals(0, solver.getMetrics().getNodes());
+        assertSame(solver.getAnalysis(), solver.getAnalysis());
+        assertFalse(solver.getAnalysis().isFeasible());
+    }
+
+    /**
+     * Verifies that the colours are numbered from the most common to the
+     * rarest, and that the normalised puzzle has the same solutions.
+     */
+    @Test
+    public void testNormalise() {
+        Puzzle puzzle = new Puzzle(2, 2, new PuzzlePiece[]{
+            new PuzzlePiece(1, new int[]{0, 0, 70, 50}),
+            new PuzzlePiece(2, new int[]{70, 0, 0, 50}),
+            new PuzzlePiece(3, new int[]{0, 50, 8, 0}),
+            new PuzzlePiece(4, new int[]{8, 50, 0, 0})});
+        PuzzleAnalysis analysis = PuzzleAnalysis.of(puzzle);
+        Puzzle normalised = analysis.normalise();
+
+        assertArrayEquals(new int[]{50, 8, 70}, analysis.getColours());
+        assertEquals(0, analysis.getDenseColour(0));
+        assertEquals(2, analysis.getDenseColour(8));
+        assertArrayEquals(new int[]{0, 0, 3, 1}, normalised.getPieces()[0].getFaces());
+        assertEquals(3, normalised.getPieces()[2].getId());
+
+        List<PuzzlePiece[][]> solutions = solve(puzzle);
+        List<PuzzlePiece[][]> normalisedSolutions = solve(normalised);
+        assertFalse(solutions.isEmpty());
+        assertEquals(solutions.size(), normalisedSolutions.size());
+        for (int i = 0; i < solutions.size(); i++) {
+            for (int row = 0; row < 2; row++) {
+                for (int col = 0; col < 2; col++) {
+                    assertEquals(solutions.get(i)[row][col].getId(), normalisedSolutions.get(i)[row][col].getId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Verifies that a colour that is not in the puzzle has no dense number.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownColour() {
+        PuzzleAnalysis.of(new PuzzleGenerator(1).generate(3, 3, 2)).getDenseColour(3);
+    }
+
+    /**
+     * Helper method to build a solvable 3x3 puzzle whose frame faces are 3,
+     * the inward faces of its edge pieces 2 and the faces of its inner piece
+     * 2.
+     */
+    private static Puzzle solvable3x3() {
+        return new Puzzle(3, 3, new PuzzlePiece[]{
+            new PuzzlePiece(1, new int[]{0, 0, 3, 3}),
+            new PuzzlePiece(2, new int[]{3, 0, 3, 2}),
+            new PuzzlePiece(3, new int[]{3, 0, 0, 3}),
+            new PuzzlePiece(4, new int[]{0, 3, 2, 3}),
+            new PuzzlePiece(5, new int[]{2, 2, 2, 2}),
+            new PuzzlePiece(6, new int[]{2, 3, 0, 3}),
+            new PuzzlePiece(7, new int[]{0, 3, 3, 0}),
+            new PuzzlePiece(8, new int[]{3, 2, 3, 0}),
+            new PuzzlePiece(9, new int[]{3, 3, 0, 0})});
+    }
+
+    /**
+     * Helper method to solve a puzzle and collect its solutions.
+     */
+    private static List<PuzzlePiece[][]> solve(Puzzle puzzle) {
+        List<PuzzlePiece[][]> solutions = new ArrayList<>();
+        PuzzleSolver solver = new PuzzleSolver(puzzle);
+        solver.setSolutionListener(solutions::add);
+        solver.solve();
+        return solutions;
+    }
+
+    /**
+     * Helper method to count the border faces of a piece.
+     */
+    private static int borders(PuzzlePiece piece) {
+        return (int) Arrays.stream(piece.getFaces()).filter(face -> face == 0).count();
+    }
+}
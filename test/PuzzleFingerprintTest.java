@@ -0,0 +1,62 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import puzzle.Puzzle;
+import puzzle.PuzzleFingerprint;
+import puzzle.PuzzleGenerator;
+import puzzle.PuzzlePiece;
+
+/**
+ * Test class for the PuzzleFingerprint class. Focuses on the puzzles that
+ * share a fingerprint and the ones that do not.
+ *
+ * @author jessmann
+ */
+public class PuzzleFingerprintTest {
+
+    /**
+     * Verifies that reordering, rotating and renumbering the pieces keeps the
+     * fingerprint and the canonical puzzle.
+     */
+    @Test
+    public void testShuffledPieces() {
+        Puzzle puzzle = new PuzzleGenerator(1).generate(5, 4, 3);
+        PuzzleFingerprint fingerprint = PuzzleFingerprint.of(puzzle);
+        PuzzleFingerprint shuffled = PuzzleFingerprint.of(shuffle(puzzle));
+
+        assertEquals(64, fingerprint.getDigest().length());
+        assertEquals(fingerprint, shuffled);
+        assertEquals(fingerprint.getDigest(), shuffled.getDigest());
+        assertEquals(fingerprint.getCanonicalPuzzle().toString(), shuffled.getCanonicalPuzzle().toString());
+    }
+
+    /**
+     * Verifies that other pieces or other dimensions give another
+     * fingerprint.
+     */
+    @Test
+    public void testOtherPuzzles() {
+        Puzzle puzzle = new PuzzleGenerator(1).generate(5, 4, 3);
+        Puzzle other = new PuzzleGenerator(2).generate(5, 4, 3);
+        Puzzle transposed = new Puzzle(4, 5, puzzle.getPieces());
+
+        String digest = PuzzleFingerprint.of(puzzle).getDigest();
+        assertNotEquals(digest, PuzzleFingerprint.of(other).getDigest());
+        assertNotEquals(digest, PuzzleFingerprint.of(transposed).getDigest());
+    }
+
+    /**
+     * Helper method to get a copy of a puzzle with its pieces in reverse
+     * order, turned and numbered from 100.
+     *
+     * @param puzzle The puzzle.
+     * @return The shuffled puzzle.
+     */
+    static Puzzle shuffle(Puzzle puzzle) {
+        PuzzlePiece[] pieces = puzzle.getPieces();
+        PuzzlePiece[] shuffled = new PuzzlePiece[pieces.length];
+        for (int i = 0; i < pieces.length; i++) {
+            shuffled[pieces.length - 1 - i] = new PuzzlePiece(100 + i, pieces[i].getFaces(i % 4));
+        }
+        return new Puzzle(puzzle.getCols(), puzzle.getRows(), shuffled);
+    }
+}
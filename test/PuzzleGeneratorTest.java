@@ -0,0 +1,87 @@
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import puzzle.Puzzle;
+import puzzle.PuzzleGenerator;
+import puzzle.PuzzlePiece;
+import puzzle.PuzzleSolver;
+
+/**
+ * Test class for the PuzzleGenerator class. Focuses on generating the same
+ * solvable puzzle from the same seed.
+ *
+ * @author jessmann
+ */
+public class PuzzleGeneratorTest {
+
+    /**
+     * Verifies that the same seed generates the same puzzle, and a different
+     * seed a different one.
+     */
+    @Test
+    public void testSameSeed() throws IOException {
+        String first = write(new PuzzleGenerator(7).generate(5, 4, 3));
+        String second = write(new PuzzleGenerator(7).generate(5, 4, 3));
+        String other = write(new PuzzleGenerator(8).generate(5, 4, 3));
+
+        assertEquals(first, second);
+        assertNotEquals(first, other);
+        assertTrue(first.startsWith("5 4\n"));
+    }
+
+    /**
+     * Verifies that the generated pieces have the expected borders and edge
+     * colours.
+     */
+    @Test
+    public void testPieces() {
+        Puzzle puzzle = new PuzzleGenerator(1).generate(4, 3, 2);
+        PuzzlePiece[] pieces = puzzle.getPieces();
+        assertEquals(12, pieces.length);
+
+        int corners = 0;
+        int edges = 0;
+        for (int i = 0; i < pieces.length; i++) {
+            assertEquals(i + 1, pieces[i].getId());
+            long borders = Arrays.stream(pieces[i].getFaces()).filter(face -> face == 0).count();
+            assertTrue(Arrays.stream(pieces[i].getFaces()).allMatch(face -> face >= 0 && face <= 2));
+            corners += (borders == 2) ? 1 : 0;
+            edges += (borders == 1) ? 1 : 0;
+        }
+        assertEquals(4, corners);
+        assertEquals(6, edges);
+    }
+
+    /**
+     * Verifies that the generated puzzle can be solved, and loaded back from
+     * the file it is saved to.
+     */
+    @Test
+    public void testSolvable() throws IOException {
+        Puzzle puzzle = new PuzzleGenerator(3).generate(6, 6, 6);
+        File file = File.createTempFile("puzzle", ".txt");
+        file.deleteOnExit();
+        assertTrue(puzzle.savePuzzle(file.getPath()));
+
+        Puzzle loaded = Puzzle.loadPuzzle(file.getPath());
+        assertNotNull(loaded);
+        assertEquals(write(puzzle), write(loaded));
+
+        int[] found = new int[1];
+        PuzzleSolver solver = new PuzzleSolver(loaded);
+        solver.setSolutionLimit(1);
+        solver.setSolutionListener(solution -> found[0]++);
+        solver.solve();
+        assertEquals(1, found[0]);
+    }
+
+    private static String write(Puzzle puzzle) throws IOException {
+        StringWriter writer = new StringWriter();
+        puzzle.writePuzzle(writer);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,102 @@
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import puzzle.Puzzle;
+import puzzle.PuzzleFormatException;
+import puzzle.PuzzleLoader;
+
+/**
+ * Test class for the PuzzleLoader class. Focuses on parsing the text format
+ * and reporting invalid files.
+ *
+ * @author jessmann
+ */
+public class PuzzleLoaderTest {
+
+    /**
+     * Verifies that the bundled puzzles are loaded with the same pieces they
+     * have in the file.
+     */
+    @Test
+    public void testLoadBundledPuzzle() throws IOException {
+        Puzzle puzzle = PuzzleLoader.load(Paths.get("puzzles/4x4.txt"));
+
+        assertEquals(4, puzzle.getCols());
+        assertEquals(4, puzzle.getRows());
+        assertEquals(16, puzzle.getPieces().length);
+        assertEquals(16, puzzle.getPieces()[15].getId());
+        assertEquals(new String(Files.readAllBytes(Paths.get("puzzles/4x4.txt")), StandardCharsets.US_ASCII).trim(),
+                write(puzzle).trim());
+    }
+
+    /**
+     * Verifies that numbers may be separated by any spaces and tabs, with
+     * blank lines and Windows line endings.
+     */
+    @Test
+    public void testFlexibleWhitespace() throws IOException {
+        Puzzle puzzle = parse("\n  2\t1 \r\n\r\n0  0 1\t0\r\n 1 0 0 0");
+
+        assertEquals(2, puzzle.getCols());
+        assertEquals(1, puzzle.getRows());
+        assertArrayEquals(new int[]{0, 0, 1, 0}, puzzle.getPieces()[0].getFaces());
+        assertArrayEquals(new int[]{1, 0, 0, 0}, puzzle.getPieces()[1].getFaces());
+    }
+
+    /**
+     * Verifies that invalid files are reported with the line of the error.
+     */
+    @Test
+    public void testInvalidFormat() {
+        assertInvalid("2 1\n0 0 1 0\n1 0 0\n", 3);
+        assertInvalid("2 1\n0 0 1 0\n1 0 0 0 5\n", 3);
+        assertInvalid("2 1\n0 0 1 0\n", 3);
+        assertInvalid("2 1\n0 0 1 0\n1 0 0 0\n\n0 0 0 0\n", 5);
+        assertInvalid("2 1\n0 0 x 0\n1 0 0 0\n", 2);
+        assertInvalid("0 1\n", 1);
+        assertInvalid("99999999999 1\n", 1);
+    }
+
+    /**
+     * Verifies that a header that claims more pieces than the file holds is
+     * reported without allocating room for all of them.
+     */
+    @Test
+    public void testHeaderLargerThanBody() {
+        assertInvalid("20000 20000\n", 2);
+        assertInvalid("20000 20000\n0 0 0 0\n1 1 1 1\n", 4);
+    }
+
+    /**
+     * Verifies that loadPuzzle still returns null for invalid files.
+     */
+    @Test
+    public void testLoadPuzzleReturnsNull() {
+        assertNull(Puzzle.loadPuzzle("puzzles/missing.txt"));
+    }
+
+    private static void assertInvalid(String text, int line) {
+        try {
+            parse(text);
+            fail("Expected a format error in: " + text);
+        } catch (PuzzleFormatException e) {
+            assertEquals(line, e.getLine());
+        }
+    }
+
+    private static Puzzle parse(String text) throws PuzzleFormatException {
+        return PuzzleLoader.parse(ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static String write(Puzzle puzzle) throws IOException {
+        StringWriter writer = new StringWriter();
+        puzzle.writePuzzle(writer);
+        return writer.toString();
+    }
+}
@@ -55,6 +55,24 @@ public class PuzzlePieceTest {
         assertArrayEquals(expectedFaces, piece.getFaces());
     }
 
+    /**
+     * Verifies that the precomputed orientations match the rotated faces
+     * without modifying the puzzle piece.
+     */
+    @Test
+    public void testGetFaceWithRotation() {
+        int[] initialFaces = {1, 2, 3, 4};
+        PuzzlePiece piece = new PuzzlePiece(1, initialFaces);
+
+        assertArrayEquals(new int[]{1, 2, 3, 4}, piece.getFaces(0));
+        assertArrayEquals(new int[]{4, 1, 2, 3}, piece.getFaces(1));
+        assertArrayEquals(new int[]{3, 4, 1, 2}, piece.getFaces(2));
+        assertArrayEquals(new int[]{2, 3, 4, 1}, piece.getFaces(3));
+        assertEquals(4, piece.getFace(1, 0));
+        assertEquals(3, piece.getFace(3, 1));
+        assertArrayEquals(new int[]{1, 2, 3, 4}, piece.getFaces());
+    }
+
     /**
      * Verifies that the rotateToCorner method correctly rotates the piece to
      * the specified corner.
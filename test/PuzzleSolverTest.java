@@ -0,0 +1,456 @@
+
+import java.io.File;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import puzzle.Puzzle;
+import puzzle.PuzzleGenerator;
+import puzzle.PuzzlePiece;
+import puzzle.PuzzleSolver;
+import puzzle.SolutionWriter;
+import puzzle.SolvingStrategy;
+
+/**
+ * Test class for the PuzzleSolver class. Focuses on the solutions found for
+ * the bundled puzzles.
+ *
+ * @author jessmann
+ */
+public class PuzzleSolverTest {
+
+    /**
+     * Verifies that the solver finds both solutions of the 4x4 puzzle, which
+     * only differ in the two identical corner pieces 5 and 14.
+     */
+    @Test
+    public void testSolve() {
+        PuzzleSolver solver = new PuzzleSolver(Puzzle.loadPuzzle("puzzles/4x4.txt"));
+        solver.solve();
+
+        assertEquals("\nSolution(s):\n"
+                + "11  3   10  12  \n15  4   8   6   \n7   16  1   2   \n5   9   13  14  \n\n"
+                + "11  3   10  12  \n15  4   8   6   \n7   16  1   2   \n14  9   13  5   \n\n",
+                solver.getSolutionsAsString());
+    }
+
+    /**
+     * Verifies that the parallel search finds the same solutions, in the same
+     * order, as the sequential search.
+     */
+    @Test
+    public void testSolveInParallel() {
+        for (String fileName : new String[]{"puzzles/4x4.txt", "puzzles/5x1.txt", "puzzles/2x10.txt", "puzzles/8x8.txt"}) {
+            PuzzleSolver sequential = new PuzzleSolver(Puzzle.loadPuzzle(fileName));
+            sequential.solve();
+
+            PuzzleSolver parallel = new PuzzleSolver(Puzzle.loadPuzzle(fileName));
+            parallel.setThreads(4);
+            parallel.setSplitDepth(3);
+            parallel.solve();
+
+            assertEquals(sequential.getSolutionsAsString(), parallel.getSolutionsAsString());
+        }
+    }
+
+    /**
+     * Verifies that the search stops as soon as the solution limit is reached,
+     * with one or several threads.
+     */
+    @Test
+    public void testSolutionLimit() {
+        PuzzleSolver solver = new PuzzleSolver(Puzzle.loadPuzzle("puzzles/4x4.txt"));
+        solver.setSolutionLimit(1);
+        solver.solve();
+
+        assertTrue(solver.isStopped());
+        assertEquals("\nSolution(s):\n"
+                + "11  3   10  12  \n15  4   8   6   \n7   16  1   2   \n5   9   13  14  \n\n",
+                solver.getSolutionsAsString());
+
+        PuzzleSolver parallel = new PuzzleSolver(Puzzle.loadPuzzle("puzzles/4x4.txt"));
+        parallel.setThreads(4);
+        parallel.setSolutionLimit(1);
+        parallel.solve();
+
+        assertTrue(parallel.isStopped());
+        assertEquals(6, parallel.getSolutionsAsString().split("\n").length);
+    }
+
+    /**
+     * Verifies that a solver solves again from scratch after its search was
+     * stopped by the solution limit or cancelled.
+     */
+    @Test
+    public void testSolveAgain() {
+        PuzzleSolver solver = new PuzzleSolver(Puzzle.loadPuzzle("puzzles/4x4.txt"));
+        solver.setSolutionLimit(1);
+        solver.solve();
+        String first = solver.getSolutionsAsString();
+        solver.solve();
+
+        assertTrue(solver.isStopped());
+        assertEquals(first, solver.getSolutionsAsString());
+
+        solver.setSolutionLimit(0);
+        solver.cancel();
+        solver.solve();
+        assertTrue(solver.isStopped());
+        solver.solve();
+
+        assertFalse(solver.isStopped());
+        assertEquals(11, solver.getSolutionsAsString().split("\n").length);
+    }
+
+    /**
+     * Verifies that a cancelled search returns without solutions.
+     */
+    @Test
+    public void testCancel() {
+        PuzzleSolver solver = new PuzzleSolver(Puzzle.loadPuzzle("puzzles/4x4.txt"));
+        solver.cancel();
+        solver.solve();
+
+        assertTrue(solver.isStopped());
+        assertEquals("\nSolution(s):\n", solver.getSolutionsAsString());
+    }
+
+    /**
+     * Verifies that the timeout stops a search that would take much longer.
+     */
+    @Test(timeout = 10000)
+    public void testTimeout() {
+        PuzzleSolver solver = new PuzzleSolver(new PuzzleGenerator(5).generate(6, 6, 4));
+        solver.setSolutionListener(solution -> {
+        });
+        solver.setTimeout(200);
+        solver.solve();
+
+        assertTrue(solver.isStopped());
+    }
+
+    /**
+     * Verifies that a timeout too long for the clock is no timeout.
+     */
+    @Test
+    public void testLongTimeout() {
+        PuzzleSolver solver = new PuzzleSolver(new PuzzleGenerator(3).generate(4, 4, 3));
+        solver.setTimeout(Long.MAX_VALUE);
+        solver.solve();
+
+        assertFalse(solver.isStopped());
+    }
+
+    /**
+     * Verifies that a search that timed out does not stop the next search
+     * of the same solver, even when its timer fires as it ends.
+     */
+    @Test(timeout = 30000)
+    public void testSolveAfterTimeout() {
+        // Searched in about a millisecond, so the timer often fires as the search ends
+        PuzzleSolver solver = new PuzzleSolver(new PuzzleGenerator(3).generate(5, 4, 3));
+        solver.setSolutionListener(solution -> {
+        });
+        for (int i = 0; i < 300; i++) {
+            solver.setTimeout(1);
+            solver.solve();
+            solver.setTimeout(0);
+            solver.solve();
+
+            assertFalse("Search " + i, solver.isStopped());
+        }
+    }
+
+    /**
+     * Verifies that a puzzle with thousands of cells is solved without
+     * overflowing the default thread stack.
+     */
+    @Test(timeout = 30000)
+    public void testLargeGrid() {
+        PuzzleSolver solver = new PuzzleSolver(new PuzzleGenerator(1).generate(60, 60, 50000));
+        List<PuzzlePiece[][]> received = new ArrayList<>();
+        solver.setSolutionListener(received::add);
+        solver.setSolutionLimit(1);
+        solver.solve();
+
+        assertEquals(1, received.size());
+        assertEquals(60, received.get(0).length);
+        assertEquals(60, received.get(0)[59].length);
+    }
+
+    /**
+     * Verifies that solutions that only swap identical pieces are dropped
+     * when only unique solutions are kept.
+     */
+    @Test
+    public void testUniqueSolutions() {
+        Puzzle puzzle = Puzzle.loadPuzzle("puzzles/4x4.txt");
+        List<PuzzlePiece[][]> received = new ArrayList<>();
+        PuzzleSolver solver = new PuzzleSolver(puzzle);
+        solver.setUniqueSolutions(true);
+        solver.setSolutionListener(received::add);
+        solver.solve();
+
+        assertEquals(1, received.size());
+        assertEquals(11, received.get(0)[0][0].getId());
+    }
+
+    /**
+     * Verifies that rectangles are solved wherever the fixed corner piece
+     * lies in the solution, and that a solution turned half round is not
+     * found again.
+     */
+    @Test
+    public void testRectangle() {
+        for (int seed = 1; seed <= 8; seed++) {
+            int[] found = new int[1];
+            PuzzleSolver solver = new PuzzleSolver(new PuzzleGenerator(seed).generate(5, 3, 15));
+            solver.setSolutionListener(solution -> found[0]++);
+            solver.solve();
+
+            assertEquals("Seed " + seed, 1, found[0]);
+        }
+    }
+
+    /**
+     * Verifies that a solution listener receives every solution instead of
+     * the solver storing them.
+     */
+    @Test
+    public void testSolutionListener() {
+        List<PuzzlePiece[][]> received = new ArrayList<>();
+        PuzzleSolver solver = new PuzzleSolver(Puzzle.loadPuzzle("puzzles/4x4.txt"));
+        solver.setSolutionListener(received::add);
+        solver.solve();
+
+        assertEquals(2, received.size());
+        assertEquals(11, received.get(0)[0][0].getId());
+        assertEquals("\nSolution(s):\n", solver.getSolutionsAsString());
+    }
+
+    /**
+     * Verifies that a solution writer writes the solutions in the same format
+     * as getSolutionsAsString, with one or several threads.
+     */
+    @Test
+    public void testSolutionWriter() {
+        PuzzleSolver stored = new PuzzleSolver(Puzzle.loadPuzzle("puzzles/2x10.txt"));
+        stored.solve();
+
+        StringWriter out = new StringWriter();
+        PuzzleSolver streamed = new PuzzleSolver(Puzzle.loadPuzzle("puzzles/2x10.txt"));
+        streamed.setSolutionListener(new SolutionWriter(out));
+        streamed.solve();
+
+        assertEquals(stored.getSolutionsAsString(), "\nSolution(s):\n" + out);
+
+        StringWriter parallelOut = new StringWriter();
+        PuzzleSolver parallel = new PuzzleSolver(Puzzle.loadPuzzle("puzzles/2x10.txt"));
+        parallel.setThreads(4);
+        parallel.setSolutionListener(new SolutionWriter(parallelOut));
+        parallel.solve();
+
+        assertEquals(out.toString().length(), parallelOut.toString().length());
+    }
+
+    /**
+     * Verifies that filling the frame first finds the same solutions as
+     * filling the cells row by row.
+     */
+    @Test
+    public void testFrameFirst() {
+        for (String fileName : new String[]{"puzzles/4x4.txt", "puzzles/5x1.txt", "puzzles/2x10.txt", "puzzles/8x8.txt"}) {
+            PuzzleSolver rowMajor = new PuzzleSolver(Puzzle.loadPuzzle(fileName));
+            rowMajor.solve();
+
+            PuzzleSolver frameFirst = new PuzzleSolver(Puzzle.loadPuzzle(fileName));
+            frameFirst.setStrategy(SolvingStrategy.FRAME_FIRST);
+            frameFirst.solve();
+
+            assertEquals(sortedSolutions(rowMajor), sortedSolutions(frameFirst));
+        }
+    }
+
+    /**
+     * Verifies that filling the most constrained cell first finds the same
+     * solutions as filling the cells row by row, with one or several threads.
+     */
+    @Test
+    public void testMostConstrained() {
+        for (String fileName : new String[]{"puzzles/4x4.txt", "puzzles/5x1.txt", "puzzles/2x10.txt", "puzzles/8x8.txt"}) {
+            PuzzleSolver rowMajor = new PuzzleSolver(Puzzle.loadPuzzle(fileName));
+            rowMajor.solve();
+
+            PuzzleSolver mostConstrained = new PuzzleSolver(Puzzle.loadPuzzle(fileName));
+            mostConstrained.setStrategy(SolvingStrategy.MOST_CONSTRAINED);
+            mostConstrained.solve();
+
+            PuzzleSolver parallel = new PuzzleSolver(Puzzle.loadPuzzle(fileName));
+            parallel.setStrategy(SolvingStrategy.MOST_CONSTRAINED);
+            parallel.setThreads(4);
+            parallel.solve();
+
+            assertEquals(sortedSolutions(rowMajor), sortedSolutions(mostConstrained));
+            assertEquals(mostConstrained.getSolutionsAsString(), parallel.getSolutionsAsString());
+        }
+    }
+
+    /**
+     * Verifies that a custom cell order is used instead of the strategy.
+     */
+    @Test
+    public void testCustomCellOrder() {
+        PuzzleSolver rowMajor = new PuzzleSolver(Puzzle.loadPuzzle("puzzles/4x4.txt"));
+        rowMajor.solve();
+
+        // Column by column
+        PuzzleSolver byColumn = new PuzzleSolver(Puzzle.loadPuzzle("puzzles/4x4.txt"));
+        byColumn.setCellOrder((board, depth) -> (depth % 4) * 4 + depth / 4);
+        byColumn.solve();
+
+        assertEquals(sortedSolutions(rowMajor), sortedSolutions(byColumn));
+    }
+
+    /**
+     * Verifies that the frame is filled clockwise before the interior.
+     */
+    @Test
+    public void testFrameFirstCellOrder() {
+        int[] order = SolvingStrategy.FRAME_FIRST.cellOrder(3, 4);
+
+        assertArrayEquals(new int[]{0, 1, 2, 3, 7, 11, 10, 9, 8, 4, 5, 6}, order);
+    }
+
+    /**
+     * Verifies that a search cancelled after a checkpoint resumes where it
+     * stopped, and gives the same solutions as a search that never stopped.
+     */
+    @Test
+    public void testResume() throws Exception {
+        assertResume(false, 25);
+    }
+
+    /**
+     * Verifies that a resumed search keeps dropping the pictures found before
+     * the checkpoint.
+     */
+    @Test
+    public void testResumeUnique() throws Exception {
+        assertResume(true, 5);
+    }
+
+    /**
+     * Verifies that a checkpoint is not resumed for another puzzle.
+     */
+    @Test(expected = UncheckedIOException.class)
+    public void testResumeOtherPuzzle() throws Exception {
+        Path checkpoint = File.createTempFile("search", ".chk").toPath();
+        checkpoint.toFile().deleteOnExit();
+        PuzzleSolver first = new PuzzleSolver(new PuzzleGenerator(1).generate(5, 4, 3));
+        first.setCheckpointFile(checkpoint);
+        first.setSolutionLimit(1);
+        first.solve();
+
+        PuzzleSolver other = new PuzzleSolver(new PuzzleGenerator(2).generate(5, 4, 3));
+        other.setCheckpointFile(checkpoint);
+        other.setResume(true);
+        other.solve();
+    }
+
+    /**
+     * Verifies that the shards of a search find every solution once.
+     */
+    @Test
+    public void testShards() {
+        assertShards(1);
+    }
+
+    /**
+     * Verifies that the shards of a parallel search find every solution once.
+     */
+    @Test
+    public void testParallelShards() {
+        assertShards(2);
+    }
+
+    /**
+     * Helper method to cancel a search after some solutions and resume it
+     * from its checkpoint.
+     */
+    private void assertResume(boolean unique, int cancelAfter) throws Exception {
+        Puzzle puzzle = new PuzzleGenerator(1).generate(5, 4, 3);
+        PuzzleSolver full = new PuzzleSolver(puzzle);
+        full.setUniqueSolutions(unique);
+        full.solve();
+
+        Path checkpoint = File.createTempFile("search", ".chk").toPath();
+        checkpoint.toFile().delete();
+        PuzzleSolver first = new PuzzleSolver(puzzle);
+        first.setUniqueSolutions(unique);
+        first.setCheckpointFile(checkpoint);
+        first.setResume(true);
+        int[] count = new int[1];
+        first.setSolutionListener(solution -> {
+            if (++count[0] == cancelAfter) {
+                first.cancel();
+            }
+        });
+        first.solve();
+        assertTrue(first.isStopped());
+        assertTrue(checkpoint.toFile().exists());
+        // The boards go to their own file, so the checkpoint only holds the position
+        Path boards = Paths.get(checkpoint + ".boards");
+        assertTrue(Files.size(boards) > 0);
+        assertTrue(Files.size(checkpoint) <= 14 + 22 + 4 * 20);
+
+        PuzzleSolver resumed = new PuzzleSolver(puzzle);
+        resumed.setUniqueSolutions(unique);
+        resumed.setCheckpointFile(checkpoint);
+        resumed.setResume(true);
+        resumed.solve();
+
+        assertFalse(resumed.isStopped());
+        assertEquals(full.getSolutionsAsString(), resumed.getSolutionsAsString());
+        assertFalse(checkpoint.toFile().exists());
+        assertFalse(boards.toFile().exists());
+    }
+
+    /**
+     * Helper method to search every shard of a puzzle and compare their
+     * solutions with the solutions of the whole search.
+     */
+    private void assertShards(int threads) {
+        Puzzle puzzle = new PuzzleGenerator(1).generate(6, 5, 4);
+        PuzzleSolver full = new PuzzleSolver(puzzle);
+        full.solve();
+
+        List<String> merged = new ArrayList<>();
+        for (int shard = 1; shard <= 3; shard++) {
+            PuzzleSolver solver = new PuzzleSolver(puzzle);
+            solver.setThreads(threads);
+            solver.setShard(shard, 3);
+            solver.solve();
+            List<String> solutions = sortedSolutions(solver);
+            assertTrue(solutions.size() < 80);
+            merged.addAll(solutions);
+        }
+        merged.sort(null);
+        assertEquals(sortedSolutions(full), merged);
+    }
+
+    /**
+     * Helper method to compare solutions found in a different order.
+     */
+    private List<String> sortedSolutions(PuzzleSolver solver) {
+        String result = solver.getSolutionsAsString().substring("\nSolution(s):\n".length());
+        List<String> solutions = Arrays.asList(result.split("\n\n"));
+        solutions.sort(null);
+        return solutions;
+    }
+}
@@ -60,4 +60,21 @@ public class PuzzleTest {
         assertTrue(puzzle1DY.isOneDimensional());
         assertFalse(puzzle2D.isOneDimensional());
     }
+
+    /**
+     * Verifies that the faces of every edge colour are counted, leaving out
+     * the border faces.
+     */
+    @Test
+    public void testColourCounts() {
+        PuzzlePiece[] pieces = {
+            new PuzzlePiece(1, new int[]{0, 0, 1, 2}),
+            new PuzzlePiece(2, new int[]{1, 0, 0, 3}),
+            new PuzzlePiece(3, new int[]{0, 2, 4, 0}),
+            new PuzzlePiece(4, new int[]{4, 3, 0, 0})
+        };
+        Puzzle puzzle = new Puzzle(2, 2, pieces);
+
+        assertEquals("{1=2, 2=2, 3=2, 4=2}", puzzle.getColourCounts().toString());
+    }
 }
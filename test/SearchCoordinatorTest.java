@@ -0,0 +1,300 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import puzzle.BinaryFormat;
+import puzzle.Puzzle;
+import puzzle.PuzzleFormatException;
+import puzzle.PuzzleGenerator;
+import puzzle.PuzzlePiece;
+import puzzle.SearchCoordinator;
+import puzzle.SearchWorker;
+
+/**
+ * Test class for the SearchCoordinator and SearchWorker classes. Focuses on
+ * searches spread over several workers on localhost.
+ *
+ * @author jessmann
+ */
+public class SearchCoordinatorTest {
+
+    /**
+     * Verifies that the workers find every solution once.
+     */
+    @Test(timeout = 30000)
+    public void testWorkers() throws Exception {
+        SearchCoordinator coordinator = new SearchCoordinator(new PuzzleGenerator(1).generate(5, 4, 3));
+        coordinator.setTasks(16);
+        solve(coordinator, 3);
+
+        assertEquals(60, coordinator.getSolutionCount());
+        assertEquals(60, distinct(coordinator.getSolutions()));
+        assertFalse(coordinator.isStopped());
+    }
+
+    /**
+     * Verifies that the solutions found by different workers are unique
+     * together.
+     */
+    @Test(timeout = 30000)
+    public void testUnique() throws Exception {
+        SearchCoordinator coordinator = new SearchCoordinator(new PuzzleGenerator(1).generate(5, 4, 3));
+        coordinator.setUniqueSolutions(true);
+        coordinator.setTasks(16);
+        solve(coordinator, 3);
+
+        assertEquals(15, coordinator.getSolutionCount());
+    }
+
+    /**
+     * Verifies that an idle worker gets part of the prefix of a busy one.
+     */
+    @Test(timeout = 30000)
+    public void testSplit() throws Exception {
+        SearchCoordinator coordinator = new SearchCoordinator(new PuzzleGenerator(1).generate(6, 5, 4));
+        coordinator.setTasks(1);
+        solve(coordinator, 2);
+
+        assertTrue(coordinator.getSplits() > 0);
+        assertEquals(80, coordinator.getSolutionCount());
+        assertEquals(80, distinct(coordinator.getSolutions()));
+    }
+
+    /**
+     * Verifies that the prefix of a worker lost in the middle of its search
+     * is searched by another one.
+     */
+    @Test(timeout = 30000)
+    public void testLostWorker() throws Exception {
+        SearchCoordinator coordinator = new SearchCoordinator(new PuzzleGenerator(1).generate(5, 4, 3));
+        coordinator.setTasks(16);
+        coordinator.start(new InetSocketAddress("localhost", 0));
+
+        // Take a prefix and disconnect without searching it
+        try (Socket socket = new Socket("localhost", coordinator.getPort())) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            in.readFully(new byte[in.readInt() + 2]);
+            assertEquals('T', in.readByte());
+        }
+        runWorkers(coordinator, 2);
+
+        assertEquals(1, coordinator.getLostWorkers());
+        assertEquals(60, coordinator.getSolutionCount());
+        assertEquals(60, distinct(coordinator.getSolutions()));
+    }
+
+    /**
+     * Verifies that the search stops at the solution limit.
+     */
+    @Test(timeout = 30000)
+    public void testLimit() throws Exception {
+        SearchCoordinator coordinator = new SearchCoordinator(new PuzzleGenerator(1).generate(6, 5, 4));
+        coordinator.setSolutionLimit(5);
+        coordinator.setTasks(1);
+        solve(coordinator, 2);
+
+        assertEquals(5, coordinator.getSolutions().size());
+        assertTrue(coordinator.isStopped());
+    }
+
+    /**
+     * Verifies that a split that reaches a worker after it finished the task
+     * does not stop the search of its next task.
+     */
+    @Test(timeout = 30000)
+    public void testLateSplit() throws Exception {
+        try (ServerSocket server = new ServerSocket(0)) {
+            Thread worker = startWorker(server.getLocalPort());
+            try (Socket socket = server.accept()) {
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                sendPuzzle(out, 0);
+                sendTask(out, 1);
+                int[] first = receiveTask(in, 1);
+                out.writeByte('P');
+                out.writeInt(1);
+                sendTask(out, 2);
+                int[] second = receiveTask(in, 2);
+
+                assertEquals(0, first[1]);
+                assertEquals(0, second[1]);
+                assertEquals(first[0], second[0]);
+            }
+            worker.join();
+        }
+    }
+
+    /**
+     * Verifies that a worker refuses a strategy it does not know.
+     */
+    @Test(timeout = 30000, expected = PuzzleFormatException.class)
+    public void testUnknownStrategy() throws Exception {
+        try (ServerSocket server = new ServerSocket(0)) {
+            Thread coordinator = new Thread(() -> {
+                try (Socket socket = server.accept()) {
+                    sendPuzzle(new DataOutputStream(socket.getOutputStream()), 99);
+                    socket.getInputStream().read();
+                } catch (IOException e) {
+                    // The worker hung up
+                }
+            });
+            coordinator.start();
+            new SearchWorker("localhost", server.getLocalPort()).run();
+        }
+    }
+
+    /**
+     * Helper method to start a coordinator and solve its puzzle with workers
+     * on threads of this process.
+     *
+     * @param coordinator The coordinator.
+     * @param workers The number of workers.
+     */
+    private static void solve(SearchCoordinator coordinator, int workers) throws Exception {
+        coordinator.start(new InetSocketAddress("localhost", 0));
+        runWorkers(coordinator, workers);
+    }
+
+    /**
+     * Helper method to run workers for a started coordinator until the search
+     * is finished.
+     *
+     * @param coordinator The coordinator.
+     * @param workers The number of workers.
+     */
+    private static void runWorkers(SearchCoordinator coordinator, int workers) throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    new SearchWorker("localhost", coordinator.getPort()).run();
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        coordinator.solve();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Helper method to run a worker for a fake coordinator on another thread.
+     *
+     * @param port The port of the fake coordinator.
+     * @return The thread of the worker.
+     */
+    private static Thread startWorker(int port) {
+        Thread thread = new Thread(() -> {
+            try {
+                new SearchWorker("localhost", port).run();
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Helper method to send the puzzle and the solving options as a
+     * coordinator does.
+     *
+     * @param out The stream to the worker.
+     * @param strategy The ordinal of the strategy.
+     */
+    private static void sendPuzzle(DataOutputStream out, int strategy) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryFormat.writePuzzle(Puzzle.loadPuzzle("puzzles/4x4.txt"), Channels.newChannel(bytes));
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+        out.writeByte(strategy);
+        out.writeBoolean(false);
+        out.flush();
+    }
+
+    /**
+     * Helper method to send a task for the whole search tree.
+     *
+     * @param out The stream to the worker.
+     * @param id The id of the task.
+     */
+    private static void sendTask(DataOutputStream out, int id) throws IOException {
+        out.writeByte('T');
+        out.writeInt(id);
+        out.writeInt(0);
+        out.flush();
+    }
+
+    /**
+     * Helper method to read the messages of a worker until it reports a task
+     * done.
+     *
+     * @param in The stream from the worker.
+     * @param id The id of the task.
+     * @return The number of solutions and of unexplored prefixes sent.
+     */
+    private static int[] receiveTask(DataInputStream in, int id) throws IOException {
+        int[] counts = new int[2];
+        while (true) {
+            int kind = in.readByte();
+            if (kind == 'H') {
+                continue;
+            }
+            assertEquals(id, in.readInt());
+            switch (kind) {
+                case 'S' -> {
+                    in.readFully(new byte[in.readInt() * 4]);
+                    counts[0]++;
+                }
+                case 'R' -> {
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        in.readFully(new byte[in.readInt() * 4]);
+                    }
+                    counts[1] += count;
+                }
+                case 'D' -> {
+                    in.readLong();
+                    return counts;
+                }
+                default ->
+                    fail("Unknown message: " + kind);
+            }
+        }
+    }
+
+    /**
+     * Helper method to count the different solutions of a list.
+     *
+     * @param solutions The solutions.
+     * @return The number of different solutions.
+     */
+    private static int distinct(List<PuzzlePiece[][]> solutions) {
+        Set<String> different = new HashSet<>();
+        for (PuzzlePiece[][] solution : solutions) {
+            StringBuilder sb = new StringBuilder();
+            for (PuzzlePiece[] row : solution) {
+                for (PuzzlePiece piece : row) {
+                    sb.append(piece.getId()).append(Arrays.toString(piece.getFaces()));
+                }
+            }
+            different.add(sb.toString());
+        }
+        return different.size();
+    }
+}
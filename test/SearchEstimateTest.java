@@ -0,0 +1,70 @@
+
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import puzzle.Puzzle;
+import puzzle.PuzzleGenerator;
+import puzzle.PuzzlePiece;
+import puzzle.PuzzleSolver;
+import puzzle.SearchEstimate;
+
+/**
+ * Test class for the SearchEstimate class. Focuses on the estimates made by
+ * the solver for the bundled puzzles.
+ *
+ * @author jessmann
+ */
+public class SearchEstimateTest {
+
+    /**
+     * Verifies that the estimated number of nodes is close to the number of
+     * nodes the search places.
+     */
+    @Test
+    public void testNodes() {
+        PuzzleSolver solver = new PuzzleSolver(Puzzle.loadPuzzle("puzzles/10x10.txt"));
+        SearchEstimate estimate = solver.estimate(10000, 1);
+        solver.solve();
+
+        double nodes = solver.getMetrics().getNodes();
+        assertEquals(10000, estimate.getProbes());
+        assertTrue(estimate.getNodes() > nodes / 2 && estimate.getNodes() < nodes * 2);
+        assertTrue(estimate.getStandardError() < estimate.getNodes());
+        assertTrue(estimate.getNodeRate() > 0);
+    }
+
+    /**
+     * Verifies that the time to search a puzzle that is never searched is
+     * unknown, not zero.
+     */
+    @Test
+    public void testUnknownTime() {
+        Puzzle puzzle = new PuzzleGenerator(2).generate(4, 4, 3);
+        PuzzlePiece inner = Arrays.stream(puzzle.getPieces())
+                .filter(piece -> Arrays.stream(piece.getFaces()).noneMatch(face -> face == 0)).findFirst().get();
+        int[] faces = inner.getFaces().clone();
+        faces[0] = 9;
+        inner.setFaces(faces);
+        SearchEstimate estimate = new PuzzleSolver(puzzle).estimate(100, 1);
+
+        assertEquals(0, estimate.getNodeRate(), 0);
+        assertEquals(-1, estimate.getEstimatedMillis(), 0);
+        assertTrue(estimate.toString(), estimate.toString().contains("Time: unknown"));
+    }
+
+    /**
+     * Verifies that a probe down a strip, which has a single branch, gives the
+     * exact tree.
+     */
+    @Test
+    public void testSingleBranch() {
+        SearchEstimate estimate = new PuzzleSolver(Puzzle.loadPuzzle("puzzles/5x1.txt")).estimate(1, 1);
+
+        double[] nodesPerDepth = estimate.getNodesPerDepth();
+        assertEquals(6, nodesPerDepth.length);
+        assertEquals(1, nodesPerDepth[5], 0);
+        assertEquals(1, estimate.getSolutions(), 0);
+        assertEquals(5, estimate.getNodes(), 0);
+        assertEquals(0, estimate.getStandardError(), 0);
+    }
+}
@@ -0,0 +1,58 @@
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import puzzle.Puzzle;
+import puzzle.PuzzleSolver;
+import puzzle.SearchMetrics;
+
+/**
+ * Test class for the SearchMetrics class. Focuses on the counts of a finished
+ * search.
+ *
+ * @author jessmann
+ */
+public class SearchMetricsTest {
+
+    /**
+     * Verifies that the metrics of a finished search count its nodes,
+     * backtracks and solutions.
+     */
+    @Test
+    public void testSequentialSearch() {
+        PuzzleSolver solver = new PuzzleSolver(Puzzle.loadPuzzle("puzzles/4x4.txt"));
+        solver.solve();
+        SearchMetrics metrics = solver.getMetrics();
+
+        assertFalse(metrics.isRunning());
+        assertEquals(2, metrics.getSolutions());
+        assertEquals(16, metrics.getMaxDepth());
+        assertTrue(metrics.getNodes() >= 16);
+        assertTrue(metrics.getCandidatesTried() >= metrics.getNodes());
+        assertTrue(metrics.getSuccessRate() > 0 && metrics.getSuccessRate() <= 1);
+
+        long[] backtracks = metrics.getBacktracks();
+        assertEquals(17, backtracks.length);
+        // The only corner candidate is tried once, so the search leaves it once
+        assertEquals(1, backtracks[0]);
+    }
+
+    /**
+     * Verifies that the parallel workers add up to the same counts as the
+     * sequential search.
+     */
+    @Test
+    public void testParallelSearch() {
+        PuzzleSolver sequential = new PuzzleSolver(Puzzle.loadPuzzle("puzzles/8x8.txt"));
+        sequential.solve();
+
+        PuzzleSolver parallel = new PuzzleSolver(Puzzle.loadPuzzle("puzzles/8x8.txt"));
+        parallel.setThreads(4);
+        parallel.setSplitDepth(3);
+        parallel.solve();
+
+        assertEquals(sequential.getMetrics().getSolutions(), parallel.getMetrics().getSolutions());
+        assertEquals(sequential.getMetrics().getNodes(), parallel.getMetrics().getNodes());
+        assertEquals(sequential.getMetrics().getCandidatesTried(), parallel.getMetrics().getCandidatesTried());
+        assertArrayEquals(sequential.getMetrics().getBacktracks(), parallel.getMetrics().getBacktracks());
+    }
+}
@@ -0,0 +1,206 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import puzzle.Puzzle;
+import puzzle.PuzzleGenerator;
+import puzzle.PuzzlePiece;
+import puzzle.PuzzleSolver;
+import puzzle.SolutionCache;
+
+/**
+ * Test class for the SolutionCache class. Focuses on the solutions handed
+ * back to puzzles with the same pieces in another order and rotation.
+ *
+ * @author jessmann
+ */
+public class SolutionCacheTest {
+
+    /**
+     * Verifies that the solutions of a puzzle answer a shuffled copy of it,
+     * with the ids and rotations of its own pieces.
+     */
+    @Test
+    public void testShuffledPuzzle() throws Exception {
+        Puzzle puzzle = new PuzzleGenerator(1).generate(5, 4, 3);
+        Puzzle shuffled = PuzzleFingerprintTest.shuffle(puzzle);
+        SolutionCache cache = new SolutionCache();
+
+        PuzzleSolver first = new PuzzleSolver(puzzle);
+        first.setSolutionCache(cache);
+        first.solve();
+        PuzzleSolver second = new PuzzleSolver(shuffled);
+        second.setSolutionCache(cache);
+        second.solve();
+
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(60, second.getMetrics().getSolutions());
+        assertEquals(0, second.getMetrics().getNodes());
+        assertFalse(second.isStopped());
+        List<PuzzlePiece[][]> solutions = cache.get(shuffled, false, 0);
+        assertEquals(60, solutions.size());
+        for (PuzzlePiece[][] solution : solutions) {
+            assertSolutionOf(shuffled, solution);
+        }
+    }
+
+    /**
+     * Verifies that the unique solutions of a puzzle answer a shuffled copy
+     * and a copy with every piece turned with the pictures a search of the
+     * copy finds, though maybe turned around or with identical pieces
+     * swapped.
+     */
+    @Test
+    public void testUniquePictures() throws Exception {
+        Puzzle puzzle = new PuzzleGenerator(1).generate(5, 4, 3);
+        SolutionCache cache = new SolutionCache();
+        PuzzleSolver solver = new PuzzleSolver(puzzle);
+        solver.setUniqueSolutions(true);
+        solver.setSolutionCache(cache);
+        solver.solve();
+
+        for (Puzzle copy : new Puzzle[]{PuzzleFingerprintTest.shuffle(puzzle), turn(puzzle)}) {
+            List<PuzzlePiece[][]> cached = cache.get(copy, true, 0);
+            List<PuzzlePiece[][]> found = new ArrayList<>();
+            PuzzleSolver searched = new PuzzleSolver(copy);
+            searched.setUniqueSolutions(true);
+            searched.setSolutionListener(found::add);
+            searched.solve();
+
+            Set<String> pictures = new HashSet<>();
+            for (PuzzlePiece[][] solution : cached) {
+                assertSolutionOf(copy, solution);
+                assertTrue(pictures.add(picture(solution)));
+            }
+            Set<String> expected = new HashSet<>();
+            for (PuzzlePiece[][] solution : found) {
+                expected.add(picture(solution));
+            }
+            assertEquals(expected, pictures);
+        }
+    }
+
+    /**
+     * Verifies that a search stopped at a solution limit answers the searches
+     * with a lower limit only.
+     */
+    @Test
+    public void testPartialResult() throws Exception {
+        Puzzle puzzle = new PuzzleGenerator(1).generate(5, 4, 3);
+        SolutionCache cache = new SolutionCache();
+
+        PuzzleSolver solver = new PuzzleSolver(puzzle);
+        solver.setSolutionLimit(5);
+        solver.setSolutionCache(cache);
+        solver.solve();
+
+        assertEquals(3, cache.get(puzzle, false, 3).size());
+        assertNull(cache.get(puzzle, false, 10));
+        assertNull(cache.get(puzzle, false, 0));
+        assertNull(cache.get(puzzle, true, 3));
+    }
+
+    /**
+     * Verifies that the results saved to a directory answer another cache,
+     * and that the memory holds no more than its size.
+     */
+    @Test
+    public void testDirectory() throws Exception {
+        Puzzle puzzle = new PuzzleGenerator(1).generate(5, 4, 3);
+        Path directory = Files.createTempDirectory("cache");
+        SolutionCache cache = new SolutionCache();
+        cache.setDirectory(directory);
+
+        PuzzleSolver solver = new PuzzleSolver(puzzle);
+        solver.setUniqueSolutions(true);
+        solver.setSolutionCache(cache);
+        solver.solve();
+
+        SolutionCache other = new SolutionCache(3000);
+        other.setDirectory(directory);
+        Puzzle shuffled = PuzzleFingerprintTest.shuffle(puzzle);
+        List<PuzzlePiece[][]> solutions = other.get(shuffled, true, 0);
+        assertEquals(15, solutions.size());
+        assertEquals(1, other.size());
+
+        // The unique solutions are also the first ones of all the solutions
+        other.put(shuffled, false, solutions, false);
+        assertEquals(1, other.size());
+        assertTrue(other.getBytes() <= 3000);
+        assertEquals(15, other.get(puzzle, false, 15).size());
+        assertEquals(15, other.get(puzzle, true, 0).size());
+    }
+
+    /**
+     * Helper method to copy a puzzle with every piece given a quarter turn.
+     *
+     * @param puzzle The puzzle.
+     * @return The turned puzzle.
+     */
+    private static Puzzle turn(Puzzle puzzle) {
+        PuzzlePiece[] pieces = puzzle.getPieces();
+        PuzzlePiece[] turned = new PuzzlePiece[pieces.length];
+        for (int i = 0; i < pieces.length; i++) {
+            turned[i] = new PuzzlePiece(pieces[i].getId(), pieces[i].getFaces(1));
+        }
+        return new Puzzle(puzzle.getCols(), puzzle.getRows(), turned);
+    }
+
+    /**
+     * Helper method to describe the picture of a solution of a rectangular
+     * puzzle, the same for the solution turned around and whatever the ids
+     * of its pieces: the smaller of the faces of its cells as placed and as
+     * given a half turn.
+     *
+     * @param solution The solution.
+     * @return The picture.
+     */
+    private static String picture(PuzzlePiece[][] solution) {
+        StringBuilder placed = new StringBuilder();
+        StringBuilder turned = new StringBuilder();
+        for (int row = 0; row < solution.length; row++) {
+            for (int col = 0; col < solution[row].length; col++) {
+                placed.append(Arrays.toString(solution[row][col].getFaces()));
+                PuzzlePiece opposite = solution[solution.length - 1 - row][solution[row].length - 1 - col];
+                turned.append(Arrays.toString(new PuzzlePiece(0, opposite.getFaces()).getFaces(2)));
+            }
+        }
+        return (placed.toString().compareTo(turned.toString()) <= 0) ? placed.toString() : turned.toString();
+    }
+
+    /**
+     * Helper method to check that a solution fits the pieces of a puzzle,
+     * each used once, and that neighbouring faces match.
+     *
+     * @param puzzle The puzzle.
+     * @param solution The solution.
+     */
+    private static void assertSolutionOf(Puzzle puzzle, PuzzlePiece[][] solution) {
+        Set<Integer> used = new HashSet<>();
+        for (int row = 0; row < puzzle.getRows(); row++) {
+            for (int col = 0; col < puzzle.getCols(); col++) {
+                PuzzlePiece placed = solution[row][col];
+                assertTrue(used.add(placed.getId()));
+                PuzzlePiece piece = Arrays.stream(puzzle.getPieces())
+                        .filter(p -> p.getId() == placed.getId()).findFirst().orElseThrow();
+                boolean rotated = false;
+                for (int rotation = 0; rotation < 4; rotation++) {
+                    rotated |= Arrays.equals(piece.getFaces(rotation), placed.getFaces());
+                }
+                assertTrue(rotated);
+                if (col > 0) {
+                    assertEquals(solution[row][col - 1].getFaces()[2], placed.getFaces()[0]);
+                }
+                if (row > 0) {
+                    assertEquals(solution[row - 1][col].getFaces()[3], placed.getFaces()[1]);
+                }
+            }
+        }
+    }
+}
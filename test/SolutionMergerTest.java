@@ -0,0 +1,78 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import puzzle.BinarySolutionWriter;
+import puzzle.Puzzle;
+import puzzle.PuzzleGenerator;
+import puzzle.PuzzlePiece;
+import puzzle.PuzzleSolver;
+import puzzle.SolutionMerger;
+
+/**
+ * Test class for the SolutionMerger class. Focuses on the solution files of
+ * the shards of a puzzle.
+ *
+ * @author jessmann
+ */
+public class SolutionMergerTest {
+
+    /**
+     * Verifies that merging the files of every shard gives every solution.
+     */
+    @Test
+    public void testMerge() throws Exception {
+        Puzzle puzzle = new PuzzleGenerator(1).generate(5, 4, 3);
+        List<PuzzlePiece[][]> solutions = new ArrayList<>();
+        long count = new SolutionMerger(puzzle).merge(solveShards(puzzle, false), solutions::add);
+
+        assertEquals(60, count);
+        assertEquals(60, solutions.size());
+    }
+
+    /**
+     * Verifies that merging drops the pictures found by more than one shard.
+     */
+    @Test
+    public void testMergeUnique() throws Exception {
+        Puzzle puzzle = new PuzzleGenerator(1).generate(5, 4, 3);
+        List<Path> files = solveShards(puzzle, true);
+        // A shard merged twice finds only pictures already merged
+        files.add(files.get(0));
+        SolutionMerger merger = new SolutionMerger(puzzle);
+        merger.setUniqueSolutions(true);
+
+        assertEquals(15, merger.merge(files, solution -> {
+        }));
+    }
+
+    /**
+     * Helper method to solve every shard of a puzzle into a solution file.
+     *
+     * @param puzzle The puzzle.
+     * @param unique True to keep only unique solutions in every shard.
+     * @return The solution files.
+     */
+    private static List<Path> solveShards(Puzzle puzzle, boolean unique) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (int shard = 1; shard <= 4; shard++) {
+            Path file = Files.createTempFile("shard", ".pzs");
+            file.toFile().deleteOnExit();
+            try (BinarySolutionWriter writer = new BinarySolutionWriter(puzzle,
+                    FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+                PuzzleSolver solver = new PuzzleSolver(puzzle);
+                solver.setUniqueSolutions(unique);
+                solver.setShard(shard, 4);
+                solver.setSolutionListener(writer);
+                solver.solve();
+            }
+            files.add(file);
+        }
+        return files;
+    }
+}
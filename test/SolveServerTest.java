@@ -0,0 +1,156 @@
+
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import puzzle.PuzzleGenerator;
+import puzzle.SolveServer;
+
+/**
+ * Test class for the SolveServer class. Focuses on the responses to puzzles
+ * sent over HTTP.
+ *
+ * @author jessmann
+ */
+public class SolveServerTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private SolveServer server;
+
+    /**
+     * Stops the server started by a test.
+     */
+    @After
+    public void stopServer() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    /**
+     * Verifies that the solutions of a puzzle are returned as JSON.
+     */
+    @Test
+    public void testSolve() throws Exception {
+        startServer(2, 2);
+        HttpResponse<String> response = post("/solve?strategy=frame-first", Files.readString(Paths.get("puzzles/4x4.txt")));
+
+        assertEquals(200, response.statusCode());
+        String json = response.body();
+        assertTrue(json, json.startsWith("{\"cols\":4,\"rows\":4,\"count\":2,\"complete\":true,"));
+        assertTrue(json, json.contains("\"solutions\":[[[{\"id\":11,\"faces\":["));
+    }
+
+    /**
+     * Verifies that an invalid puzzle or option is refused with its reason.
+     */
+    @Test
+    public void testBadRequest() throws Exception {
+        startServer(1, 1);
+        HttpResponse<String> response = post("/solve", "2 2\n1 2 3 4\n");
+
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body(), response.body().startsWith("{\"error\":\""));
+
+        response = post("/solve?strategy=spiral", Files.readString(Paths.get("puzzles/4x4.txt")));
+        assertEquals(400, response.statusCode());
+    }
+
+    /**
+     * Verifies that a puzzle with more pieces than the maximum is refused from
+     * its header, however few pieces its body holds.
+     */
+    @Test
+    public void testTooManyPieces() throws Exception {
+        startServer(1, 1);
+        HttpResponse<String> response = post("/solve", "20000 20000\n0 0 0 0\n");
+
+        assertEquals(413, response.statusCode());
+        assertTrue(response.body(), response.body().contains("more than " + SolveServer.DEFAULT_MAX_PIECES + " pieces"));
+
+        server.setMaxPieces(15);
+        assertEquals(413, post("/solve", Files.readString(Paths.get("puzzles/4x4.txt"))).statusCode());
+        server.setMaxPieces(16);
+        assertEquals(200, post("/solve", Files.readString(Paths.get("puzzles/4x4.txt"))).statusCode());
+    }
+
+    /**
+     * Verifies that a timeout or limit that would lift the caps of the server
+     * is refused.
+     */
+    @Test
+    public void testUncappedOptions() throws Exception {
+        startServer(1, 1);
+        String puzzle = Files.readString(Paths.get("puzzles/4x4.txt"));
+
+        for (String query : new String[]{"timeout=0", "timeout=-5", "limit=-1"}) {
+            HttpResponse<String> response = post("/solve?" + query, puzzle);
+            assertEquals(query, 400, response.statusCode());
+        }
+        assertEquals(200, post("/solve?timeout=9223372036854775807", puzzle).statusCode());
+    }
+
+    /**
+     * Verifies that a request is refused at once while every worker is busy
+     * and the queue is full.
+     */
+    @Test(timeout = 20000)
+    public void testBusy() throws Exception {
+        startServer(1, 0);
+        StringWriter hard = new StringWriter();
+        new PuzzleGenerator(5).generate(6, 6, 4).writePuzzle(hard);
+        CompletableFuture<HttpResponse<String>> running = client.sendAsync(request("/solve?timeout=3", hard.toString()),
+                HttpResponse.BodyHandlers.ofString());
+
+        while (!get("/health").contains("\"active\":1")) {
+            Thread.sleep(10);
+        }
+        HttpResponse<String> refused = post("/solve", Files.readString(Paths.get("puzzles/4x4.txt")));
+        assertEquals(503, refused.statusCode());
+
+        HttpResponse<String> stopped = running.get();
+        assertEquals(200, stopped.statusCode());
+        assertTrue(stopped.body(), stopped.body().contains("\"complete\":false"));
+    }
+
+    /**
+     * Helper method to start a server on a free port.
+     */
+    private void startServer(int workers, int queueSize) throws Exception {
+        server = new SolveServer();
+        server.setWorkers(workers);
+        server.setQueueSize(queueSize);
+        server.start(new InetSocketAddress("localhost", 0));
+    }
+
+    /**
+     * Helper method to create a request posting a body.
+     */
+    private HttpRequest request(String path, String body) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    /**
+     * Helper method to post a body.
+     */
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        return client.send(request(path, body), HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Helper method to get a response body.
+     */
+    private String get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path)).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+    }
+}